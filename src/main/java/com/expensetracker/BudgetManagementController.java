@@ -1,6 +1,7 @@
 package com.expensetracker;
 
 import com.expensetracker.managers.BudgetManager;
+import com.expensetracker.managers.BudgetTracker;
 import com.expensetracker.managers.CategoryManager;
 import com.expensetracker.model.Budget;
 import com.expensetracker.model.Category;
@@ -9,7 +10,9 @@ import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
+import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TextField;
 
 import java.util.stream.Collectors;
@@ -25,6 +28,7 @@ public class BudgetManagementController {
     @FXML private ListView<Budget> budgetListView;
 
     private BudgetManager budgetManager;
+    private BudgetTracker budgetTracker;
     private CategoryManager categoryManager;
     private ExpenseTrackerController expenseTrackerController; // Reference to the main controller
 
@@ -53,6 +57,30 @@ public class BudgetManagementController {
         budgetListView.setItems(budgetManager.getBudgets());
     }
 
+    /** Shows each budget's spend and utilization for its current period. */
+    public void setBudgetTracker(BudgetTracker budgetTracker) {
+        this.budgetTracker = budgetTracker;
+        budgetListView.setCellFactory(list -> new ListCell<>() {
+            private final ProgressBar utilizationBar = new ProgressBar();
+
+            @Override
+            protected void updateItem(Budget budget, boolean empty) {
+                super.updateItem(budget, empty);
+                if (empty || budget == null) {
+                    setText(null);
+                    setGraphic(null);
+                    return;
+                }
+                double utilization = budgetTracker.getUtilization(budget);
+                setText(String.format("%s%nSpent K %.2f (%.0f%%)", budget, budgetTracker.getSpent(budget), utilization));
+                utilizationBar.setProgress(Math.min(utilization / 100, 1));
+                utilizationBar.setStyle(utilization >= 100 ? "-fx-accent: #c0392b;"
+                        : utilization >= 80 ? "-fx-accent: #e67e22;" : null);
+                setGraphic(utilizationBar);
+            }
+        });
+    }
+
     public void setCategoryManager(CategoryManager categoryManager) {
         this.categoryManager = categoryManager;
         categoryComboBox.setItems(categoryManager.getCategories().stream()
@@ -77,6 +77,7 @@ public class CategoryManagementController {
         }
 
         Category updatedCategory = new Category(
+                selectedCategory.getId(),
                 selectedCategory.getUserId(),
                 newCategoryName,
                 selectedCategory.getColor(),
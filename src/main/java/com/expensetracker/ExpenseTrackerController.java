@@ -1,16 +1,27 @@
 package com.expensetracker;
 
-import com.expensetracker.file.CsvFileManager;
+import com.expensetracker.api.ApiServer;
 import com.expensetracker.file.FileManager;
+import com.expensetracker.file.FileManagerFactory;
+import com.expensetracker.file.WriteBehindFileManager;
 import com.expensetracker.managers.BudgetManager;
+import com.expensetracker.managers.BudgetTracker;
 import com.expensetracker.managers.CategoryManager;
 import com.expensetracker.managers.ExpenseManager;
 import com.expensetracker.managers.RecurringExpenseManager;
+import com.expensetracker.managers.RecurringExpenseScheduler;
+import com.expensetracker.managers.StartupLoader;
 import com.expensetracker.model.Category;
+import com.expensetracker.model.CategoryReportData;
 import com.expensetracker.model.Expense;
+import com.expensetracker.store.ExpenseQuery;
+import com.expensetracker.store.RowOrder;
 import com.expensetracker.util.ExpenseFilter;
+import com.expensetracker.util.ExpenseImporter;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -26,15 +37,14 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.time.LocalDate;
-import java.time.format.DateTimeParseException;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.csv.CSVPrinter;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
@@ -57,6 +67,9 @@ public class ExpenseTrackerController {
     @FXML private TableColumn<Expense, String> dateColumn;
     @FXML private TableColumn<Expense, String> descriptionColumn;
     @FXML private Label totalSpentLabel;
+    @FXML private Label pendingWritesLabel;
+    @FXML private ProgressIndicator loadingIndicator;
+    @FXML private Label loadingLabel;
 
     // FXML Injections for Filtering
     @FXML private DatePicker startDatePicker;
@@ -66,12 +79,17 @@ public class ExpenseTrackerController {
     // FXML Injections for Search
     @FXML private TextField searchField;
 
+    private FileManager fileManager;
     private ExpenseManager expenseManager;
     private CategoryManager categoryManager;
     private RecurringExpenseManager recurringExpenseManager;
+    private RecurringExpenseScheduler recurringExpenseScheduler;
     private BudgetManager budgetManager;
+    private BudgetTracker budgetTracker;
     private ExpenseFilter expenseFilter;
+    private ApiServer apiServer;
     private Expense editingExpense; // Field to hold the expense being edited
+    private boolean expensesLoaded; // False while the startup loader is still streaming expenses in
 
     /**
      * Initializes the controller class. Automatically called after the FXML is loaded.
@@ -79,14 +97,23 @@ public class ExpenseTrackerController {
     @FXML
     public void initialize() {
         // Initialize File Manager and Managers
-        FileManager fileManager = new CsvFileManager();
-        expenseManager = new ExpenseManager(fileManager);
-        categoryManager = new CategoryManager(fileManager);
-        recurringExpenseManager = new RecurringExpenseManager(fileManager, expenseManager);
-        budgetManager = new BudgetManager(fileManager);
-
-        // Generate any due recurring expenses
-        recurringExpenseManager.generateDueExpenses();
+        fileManager = FileManagerFactory.getFileManager();
+        if (fileManager instanceof WriteBehindFileManager) {
+            // Show unsaved changes while the background writer catches up
+            ((WriteBehindFileManager) fileManager).addPendingWritesListener(
+                    pending -> Platform.runLater(() -> updatePendingWritesLabel(pending)));
+        }
+        // Read all files in the background; the window only waits for the categories
+        StartupLoader startupLoader = new StartupLoader(fileManager);
+        expenseManager = startupLoader.getExpenseManager();
+        startupLoader.start();
+        categoryManager = startupLoader.awaitCategories();
+
+        // Expenses stream into the table while the window is up
+        loadingIndicator.setVisible(true);
+        loadingLabel.textProperty().bind(startupLoader.loadedExpensesProperty()
+                .asString("Loading expenses... %,d"));
+        startupLoader.loaded().whenComplete((ignored, error) -> onStartupLoaded(startupLoader, error));
 
         // 1. Setup Data
         expenseFilter = new ExpenseFilter(expenseManager.getExpenses());
@@ -101,9 +128,14 @@ public class ExpenseTrackerController {
         dateColumn.setCellValueFactory(new PropertyValueFactory<>("date"));
         descriptionColumn.setCellValueFactory(new PropertyValueFactory<>("description"));
 
-        // Bind the TableView to the ExpenseFilter's sorted list
+        // Bind the TableView to the ExpenseFilter's sorted list; sorting happens on the store columns
         expenseTable.setItems(expenseFilter.getSortedList());
-        expenseFilter.bindSort(expenseTable);
+        expenseFilter.bindSort(expenseTable, Map.of(
+                amountColumn, RowOrder.Column.AMOUNT,
+                categoryColumn, RowOrder.Column.CATEGORY,
+                dateColumn, RowOrder.Column.DATE,
+                descriptionColumn, RowOrder.Column.DESCRIPTION));
+        expenseFilter.totalProperty().addListener((obs, oldVal, newVal) -> calculateTotalSpent());
 
         // Update summary
         calculateTotalSpent();
@@ -128,6 +160,60 @@ public class ExpenseTrackerController {
         searchField.textProperty().addListener((obs, oldVal, newVal) -> handleSearchExpenses());
     }
 
+    /**
+     * Called on the FX thread once the startup loader is done. Everything that reads the whole
+     * expense history starts here, so it never sees a partial one.
+     */
+    private void onStartupLoaded(StartupLoader startupLoader, Throwable error) {
+        loadingLabel.textProperty().unbind();
+        loadingLabel.setText("");
+        loadingIndicator.setVisible(false);
+        if (error != null) {
+            showAlert(Alert.AlertType.ERROR, "Loading Error", "Could not load your data: " + error.getMessage());
+            return;
+        }
+        recurringExpenseManager = startupLoader.getRecurringExpenseManager();
+        budgetManager = startupLoader.getBudgetManager();
+
+        // Generate any due recurring expenses, then keep generating them while the app runs
+        recurringExpenseManager.generateDueExpenses();
+        recurringExpenseScheduler = new RecurringExpenseScheduler(recurringExpenseManager);
+        recurringExpenseScheduler.start();
+
+        // Warn as soon as a saved expense takes a budget to 80% or 100%
+        budgetTracker = new BudgetTracker(expenseManager, budgetManager);
+        budgetTracker.addThresholdListener((budget, percent, spent) -> Platform.runLater(() ->
+                showAlert(Alert.AlertType.WARNING, "Budget Alert", String.format(
+                        "%s spending has reached %d%% of its %s budget: K %.2f of K %.2f.",
+                        budget.getCategory(), percent, budget.getPeriod().toLowerCase(), spent, budget.getBudgetAmount()))));
+
+        // Serve read-only queries to local tools, if enabled in config.properties
+        try {
+            apiServer = ApiServer.fromConfig(FileManagerFactory.loadConfig(),
+                    expenseManager.getStore(), budgetManager, budgetTracker);
+            if (apiServer != null) {
+                apiServer.start();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not start the query API", e);
+        }
+
+        expensesLoaded = true;
+        calculateTotalSpent();
+    }
+
+    /**
+     * Whether the expense history is fully loaded. If not, tells the user to wait: saving, importing
+     * or reporting over a partial history would write or show wrong data.
+     */
+    private boolean checkExpensesLoaded() {
+        if (!expensesLoaded) {
+            showAlert(Alert.AlertType.INFORMATION, "Still Loading",
+                    "Your expenses are still loading. Please try again in a moment.");
+        }
+        return expensesLoaded;
+    }
+
     public void updateCategoryComboBoxes() {
         ObservableList<String> categoryNames = categoryManager.getCategories().stream()
                 .map(Category::getName)
@@ -156,6 +242,7 @@ public class ExpenseTrackerController {
      */
     @FXML
     private void saveExpense() {
+        if (!checkExpensesLoaded()) return;
         // Basic Validation
         if (amountField.getText().isEmpty() || categoryComboBox.getValue() == null || datePicker.getValue() == null) {
             showAlert(Alert.AlertType.ERROR, "Validation Error", "Please fill in Amount, Category, and Date.");
@@ -207,6 +294,7 @@ public class ExpenseTrackerController {
      */
     @FXML
     private void deleteExpense() {
+        if (!checkExpensesLoaded()) return;
         Expense selectedExpense = expenseTable.getSelectionModel().getSelectedItem();
 
         if (selectedExpense == null) {
@@ -295,12 +383,15 @@ public class ExpenseTrackerController {
 
     @FXML
     private void handleGenerateReport() {
+        if (!checkExpensesLoaded()) return;
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/application/ReportView.fxml"));
             Parent root = loader.load();
 
             ReportViewController reportViewController = loader.getController();
-            reportViewController.setExpenses(expenseFilter.getSortedList()); // Pass filtered expenses
+            reportViewController.setReportData(CategoryReportData.fromTotals(reportCategoryTotals())); // Totals of the filtered expenses
+            reportViewController.setStatisticsSource(expenseManager.getStore(), expenseFilter.getQuery());
+            reportViewController.setProjectionSource(recurringExpenseManager.getRecurringExpenses());
 
             Stage stage = new Stage();
             stage.setTitle("Expense Report");
@@ -315,47 +406,49 @@ public class ExpenseTrackerController {
 
     @FXML
     private void handleImportExpenses() {
+        if (!checkExpensesLoaded()) return;
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Import Expenses CSV");
         fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
         File file = fileChooser.showOpenDialog(expenseTable.getScene().getWindow());
-        if (file != null) {
-            try (BufferedReader reader = new BufferedReader(new FileReader(file));
-                 CSVParser parser = new CSVParser(reader, CSVFormat.DEFAULT.builder().setHeader("id", "amount", "category", "date", "description").setSkipHeaderRecord(true).setTrim(true).build())) {
-
-                for (CSVRecord record : parser) {
-                    try {
-                        String id = record.isMapped("id") ? record.get("id") : java.util.UUID.randomUUID().toString();
-                        double amount = Double.parseDouble(record.get("amount"));
-                        String category = record.get("category");
-                        LocalDate date = LocalDate.parse(record.get("date"));
-                        String description = record.isMapped("description") ? record.get("description") : "";
-                        expenseManager.addExpense(new Expense(id, amount, category, date, description));
-                    } catch (NumberFormatException | DateTimeParseException ex) {
-                        LOGGER.log(Level.WARNING, "Skipping malformed record during import: " + ex.getMessage());
-                        showAlert(Alert.AlertType.ERROR, "Import Error", "Skipping malformed record: " + ex.getMessage());
-                    } catch (IllegalArgumentException ex) {
-                        // Handle cases where a required header is missing
-                        LOGGER.log(Level.SEVERE, "Missing required CSV column during import: " + ex.getMessage());
-                        showAlert(Alert.AlertType.ERROR, "Import Error", "Missing required CSV column: " + ex.getMessage());
-                        break; // Stop parsing if a critical column is missing
-                    }
+        if (file == null) return;
+
+        // Parse and validate off the FX thread, then insert everything in one batch
+        Task<ExpenseImporter.ImportResult> importTask = new Task<>() {
+            @Override
+            protected ExpenseImporter.ImportResult call() throws Exception {
+                try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+                    return new ExpenseImporter().importCsv(reader);
                 }
-                calculateTotalSpent();
-                updateCategoryComboBoxes(); // Update category dropdowns in case new categories were imported
-                showAlert(Alert.AlertType.INFORMATION, "Import Success", "Expenses imported successfully from " + file.getName());
-            } catch (IOException e) {
-                LOGGER.log(Level.SEVERE, "Error reading import file: " + e.getMessage(), e);
-                showAlert(Alert.AlertType.ERROR, "Import Error", "Error reading file: " + e.getMessage());
-            } catch (Exception e) {
-                LOGGER.log(Level.SEVERE, "An unexpected error occurred during import.", e);
-                showAlert(Alert.AlertType.ERROR, "Import Error", "An unexpected error occurred during import: " + e.getMessage());
             }
-        }
+        };
+        importTask.setOnSucceeded(event -> {
+            ExpenseImporter.ImportResult result = importTask.getValue();
+            expenseManager.addAll(result.getExpenses());
+            calculateTotalSpent();
+            updateCategoryComboBoxes(); // Update category dropdowns in case new categories were imported
+            if (result.getErrorCount() > 0 || result.getFatalError() != null) {
+                LOGGER.log(Level.WARNING, "Import of " + file.getName() + " skipped " + result.getErrorCount() + " row(s)");
+                showAlert(Alert.AlertType.WARNING, "Import Finished With Errors", result.summary());
+            } else {
+                showAlert(Alert.AlertType.INFORMATION, "Import Success",
+                        "Imported " + result.getExpenses().size() + " expense(s) from " + file.getName());
+            }
+        });
+        importTask.setOnFailed(event -> {
+            Throwable e = importTask.getException();
+            LOGGER.log(Level.SEVERE, "Error reading import file: " + e.getMessage(), e);
+            showAlert(Alert.AlertType.ERROR, "Import Error", "Error reading file: " + e.getMessage());
+        });
+
+        Thread importThread = new Thread(importTask, "expense-import");
+        importThread.setDaemon(true);
+        importThread.start();
     }
 
     @FXML
     private void handleExportExpenses() {
+        if (!checkExpensesLoaded()) return;
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Export Expenses CSV");
         fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
@@ -395,12 +488,14 @@ public class ExpenseTrackerController {
 
      @FXML
     private void handleManageBudgets() {
+        if (!checkExpensesLoaded()) return;
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/application/BudgetManagement.fxml"));
             Parent root = loader.load();
 
             BudgetManagementController budgetManagementController = loader.getController();
             budgetManagementController.setBudgetManager(budgetManager);
+            budgetManagementController.setBudgetTracker(budgetTracker);
             budgetManagementController.setCategoryManager(categoryManager);
              budgetManagementController.setExpenseTrackerController(this);
 
@@ -417,6 +512,7 @@ public class ExpenseTrackerController {
 
     @FXML
     private void handleManageRecurringExpenses() {
+        if (!checkExpensesLoaded()) return;
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/application/RecurringExpenseManagement.fxml"));
             Parent root = loader.load();
@@ -443,14 +539,52 @@ public class ExpenseTrackerController {
         }
     }
 
+    /**
+     * Category totals in cents for the expenses currently shown. Date and category filters alone are
+     * answered from the rollup cube; search text and amount ranges need the filter's own aggregates.
+     */
+    private Map<String, Long> reportCategoryTotals() {
+        ExpenseQuery query = expenseFilter.getQuery();
+        if (query.getSearchText() != null || query.hasAmountRange()) {
+            return expenseFilter.getAggregates().getCategoryTotals();
+        }
+        LocalDate from = query.getFromDay() == Integer.MIN_VALUE ? null : LocalDate.ofEpochDay(query.getFromDay());
+        LocalDate to = query.getToDay() == Integer.MAX_VALUE ? null : LocalDate.ofEpochDay(query.getToDay());
+        Map<String, Long> totals = expenseManager.getRollup().categoryTotals(from, to);
+        if (query.getCategory() != null) {
+            totals.keySet().retainAll(Set.of(query.getCategory()));
+        }
+        return totals;
+    }
+
     /**
      * Calculates and updates the total amount spent label based on filtered data.
      */
     private void calculateTotalSpent() {
-        double total = expenseFilter.getSortedList().stream()
-                .mapToDouble(Expense::getAmount)
-                .sum();
-        totalSpentLabel.setText(String.format("Total Spent: K %.2f", total));
+        // The filter keeps the total of the visible rows up to date, including while it filters in the background
+        totalSpentLabel.setText(String.format("Total Spent: K %.2f", expenseFilter.getTotal()));
+    }
+
+    private void updatePendingWritesLabel(int pending) {
+        pendingWritesLabel.setText(pending > 0 ? String.format("Saving %d change(s)...", pending) : "");
+    }
+
+    /**
+     * Releases the storage backend. Called by {@link Main} when the application exits.
+     */
+    public void shutdown() {
+        if (apiServer != null) {
+            apiServer.stop();
+        }
+        if (recurringExpenseScheduler != null) {
+            recurringExpenseScheduler.shutdown();
+        }
+        if (expenseFilter != null) {
+            expenseFilter.shutdown();
+        }
+        if (fileManager != null) {
+            fileManager.close();
+        }
     }
 
     /**
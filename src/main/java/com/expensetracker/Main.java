@@ -14,12 +14,15 @@ public class Main extends Application {
 
     private static final Logger LOGGER = Logger.getLogger(Main.class.getName());
 
+    private ExpenseTrackerController controller;
+
     @Override
     public void start(Stage primaryStage) {
         try {
             // Load the FXML layout
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/application/ExpenseTracker.fxml"));
             Parent root = loader.load();
+            controller = loader.getController();
 
             // Set the scene
             Scene scene = new Scene(root);
@@ -36,6 +39,13 @@ public class Main extends Application {
         }
     }
 
+    @Override
+    public void stop() {
+        if (controller != null) {
+            controller.shutdown();
+        }
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
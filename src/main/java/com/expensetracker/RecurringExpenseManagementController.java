@@ -3,6 +3,7 @@ package com.expensetracker;
 import com.expensetracker.managers.CategoryManager;
 import com.expensetracker.managers.RecurringExpenseManager;
 import com.expensetracker.model.Category;
+import com.expensetracker.model.RecurrenceRule;
 import com.expensetracker.model.RecurringExpense;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
@@ -30,7 +31,13 @@ public class RecurringExpenseManagementController {
 
     @FXML
     public void initialize() {
-        frequencyComboBox.setItems(FXCollections.observableArrayList("DAILY", "WEEKLY", "MONTHLY", "YEARLY"));
+        // Editable, so any supported recurrence rule can be typed in; these are common ones
+        frequencyComboBox.setItems(FXCollections.observableArrayList("DAILY", "WEEKLY", "MONTHLY", "YEARLY",
+                "FREQ=WEEKLY;INTERVAL=2",
+                "FREQ=MONTHLY;BYDAY=2TU",
+                "FREQ=MONTHLY;BYDAY=MO,TU,WE,TH,FR;BYSETPOS=-1",
+                "FREQ=MONTHLY;BYMONTHDAY=-1"));
+        frequencyComboBox.setEditable(true);
         frequencyComboBox.setValue("MONTHLY");
         startDatePicker.setValue(LocalDate.now());
 
@@ -106,7 +113,8 @@ public class RecurringExpenseManagementController {
                 category,
                 startDate,
                 frequency,
-                description
+                description,
+                selectedRecurringExpense.getLastGenerated() // Occurrences already generated stay generated
         );
         recurringExpenseManager.updateRecurringExpense(selectedRecurringExpense, updatedRecurringExpense);
         clearFields();
@@ -153,6 +161,13 @@ public class RecurringExpenseManagementController {
             showAlert(Alert.AlertType.ERROR, "Validation Error", "Amount must be a valid number.");
             return false;
         }
+
+        try {
+            RecurrenceRule.parse(frequency);
+        } catch (IllegalArgumentException e) {
+            showAlert(Alert.AlertType.ERROR, "Validation Error", "Frequency is not a valid recurrence rule: " + e.getMessage());
+            return false;
+        }
         return true;
     }
 
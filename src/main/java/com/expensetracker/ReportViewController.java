@@ -1,27 +1,55 @@
 package com.expensetracker;
 
 import com.expensetracker.model.CategoryReportData;
-import com.expensetracker.model.Expense;
+import com.expensetracker.model.GroupStatisticsReportData;
+import com.expensetracker.model.RecurringExpense;
+import com.expensetracker.report.RecurringProjection;
+import com.expensetracker.report.ReportEngine;
+import com.expensetracker.store.ExpenseQuery;
+import com.expensetracker.store.ExpenseStore;
+import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.control.TableCell; // Added import for TableCell
+import javafx.util.Callback;
 
+import java.time.LocalDate;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class ReportViewController {
+    private static final Logger LOGGER = Logger.getLogger(ReportViewController.class.getName());
+    // Horizons offered in projectionComboBox, in the same order
+    private static final int[] PROJECTION_YEARS = {1, 5, 10};
 
     @FXML private TableView<CategoryReportData> reportTable;
     @FXML private TableColumn<CategoryReportData, String> categoryColumn;
     @FXML private TableColumn<CategoryReportData, Double> totalAmountColumn;
     @FXML private TableColumn<CategoryReportData, Double> percentageColumn;
+    @FXML private TableColumn<CategoryReportData, Number> countColumn;
+    @FXML private TableColumn<CategoryReportData, Number> meanColumn;
+    @FXML private TableColumn<CategoryReportData, Number> medianColumn;
+    @FXML private TableColumn<CategoryReportData, Number> p90Column;
+    @FXML private TableColumn<CategoryReportData, Number> p99Column;
+    @FXML private TableColumn<CategoryReportData, Number> standardDeviationColumn;
     @FXML private Label grandTotalLabel;
+    @FXML private ComboBox<ReportEngine.GroupBy> groupByComboBox;
+    @FXML private ComboBox<String> projectionComboBox;
+    @FXML private Label statusLabel;
+
+    private final ReportEngine reportEngine = new ReportEngine();
+    private ExpenseStore store;
+    private ExpenseQuery query;
+    private List<RecurringExpense> recurringExpenses = List.of();
+    private Task<? extends List<? extends CategoryReportData>> runningTask;
 
     public void initialize() {
         categoryColumn.setCellValueFactory(new PropertyValueFactory<>("categoryName"));
@@ -55,22 +83,114 @@ public class ReportViewController {
                 }
             }
         });
+
+        // Statistics columns stay blank for plain category totals
+        countColumn.setCellValueFactory(statistic(GroupStatisticsReportData::countProperty));
+        meanColumn.setCellValueFactory(statistic(GroupStatisticsReportData::meanProperty));
+        medianColumn.setCellValueFactory(statistic(GroupStatisticsReportData::medianProperty));
+        p90Column.setCellValueFactory(statistic(GroupStatisticsReportData::p90Property));
+        p99Column.setCellValueFactory(statistic(GroupStatisticsReportData::p99Property));
+        standardDeviationColumn.setCellValueFactory(statistic(GroupStatisticsReportData::standardDeviationProperty));
+        meanColumn.setCellFactory(col -> amountCell());
+        medianColumn.setCellFactory(col -> amountCell());
+        p90Column.setCellFactory(col -> amountCell());
+        p99Column.setCellFactory(col -> amountCell());
+        standardDeviationColumn.setCellFactory(col -> amountCell());
+
+        groupByComboBox.setItems(FXCollections.observableArrayList(ReportEngine.GroupBy.values()));
+        groupByComboBox.valueProperty().addListener((obs, oldValue, groupBy) -> runStatistics(groupBy));
+
+        projectionComboBox.setItems(FXCollections.observableArrayList("Next 12 months", "Next 5 years", "Next 10 years"));
+        projectionComboBox.getSelectionModel().selectedIndexProperty().addListener((obs, oldValue, index) -> {
+            if (index.intValue() >= 0) runProjection(PROJECTION_YEARS[index.intValue()]);
+        });
     }
 
-    public void setExpenses(List<Expense> expenses) {
-        double grandTotal = expenses.stream().mapToDouble(Expense::getAmount).sum();
-        grandTotalLabel.setText(String.format("Grand Total: K %.2f", grandTotal));
+    private static Callback<TableColumn.CellDataFeatures<CategoryReportData, Number>, ObservableValue<Number>> statistic(
+            Function<GroupStatisticsReportData, ObservableValue<Number>> property) {
+        return data -> data.getValue() instanceof GroupStatisticsReportData
+                ? property.apply((GroupStatisticsReportData) data.getValue())
+                : null;
+    }
+
+    private static TableCell<CategoryReportData, Number> amountCell() {
+        return new TableCell<>() {
+            @Override
+            protected void updateItem(Number amount, boolean empty) {
+                super.updateItem(amount, empty);
+                if (empty || amount == null || Double.isNaN(amount.doubleValue())) {
+                    setText(null);
+                } else {
+                    setText(String.format("K %.2f", amount.doubleValue()));
+                }
+            }
+        };
+    }
 
-        Map<String, Double> categoryTotals = expenses.stream()
-                .collect(Collectors.groupingBy(Expense::getCategory, Collectors.summingDouble(Expense::getAmount)));
+    /** Lets the user group the expenses matching {@code query} and see statistics per group. */
+    public void setStatisticsSource(ExpenseStore store, ExpenseQuery query) {
+        this.store = store;
+        this.query = query;
+    }
 
-        ObservableList<CategoryReportData> reportData = FXCollections.observableArrayList();
-        for (Map.Entry<String, Double> entry : categoryTotals.entrySet()) {
-            String categoryName = entry.getKey();
-            double totalAmount = entry.getValue();
-            double percentage = (grandTotal > 0) ? (totalAmount / grandTotal) * 100 : 0;
-            reportData.add(new CategoryReportData(categoryName, totalAmount, percentage));
+    /** Lets the user project the future cost of these recurring expenses by category. */
+    public void setProjectionSource(List<RecurringExpense> recurringExpenses) {
+        this.recurringExpenses = List.copyOf(recurringExpenses);
+    }
+
+    private void runStatistics(ReportEngine.GroupBy groupBy) {
+        if (store == null || groupBy == null) return;
+        projectionComboBox.getSelectionModel().clearSelection();
+        ExpenseStore source = store;
+        ExpenseQuery criteria = query;
+        // Grouping and ranking can take a while on large data; keep the window responsive
+        runInBackground(new Task<>() {
+            @Override
+            protected List<GroupStatisticsReportData> call() {
+                return reportEngine.run(source, criteria, groupBy);
+            }
+        }, groupBy.toString());
+    }
+
+    private void runProjection(int years) {
+        groupByComboBox.getSelectionModel().clearSelection();
+        List<RecurringExpense> rules = recurringExpenses;
+        LocalDate from = LocalDate.now().plusDays(1);
+        LocalDate to = LocalDate.now().plusYears(years);
+        runInBackground(new Task<>() {
+            @Override
+            protected List<CategoryReportData> call() {
+                return CategoryReportData.fromTotals(RecurringProjection.categoryTotals(rules, from, to));
+            }
+        }, "Category (projected)");
+    }
+
+    private void runInBackground(Task<? extends List<? extends CategoryReportData>> task, String groupLabel) {
+        if (runningTask != null) {
+            runningTask.cancel();
         }
-        reportTable.setItems(reportData);
+        task.setOnSucceeded(event -> {
+            if (task != runningTask) return;
+            statusLabel.setText(null);
+            categoryColumn.setText(groupLabel);
+            setReportData(List.copyOf(task.getValue()));
+        });
+        task.setOnFailed(event -> {
+            if (task != runningTask) return;
+            LOGGER.log(Level.SEVERE, "Computing report failed", task.getException());
+            statusLabel.setText("Could not compute the report.");
+        });
+        runningTask = task;
+        statusLabel.setText("Computing...");
+
+        Thread thread = new Thread(task, "report-statistics");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void setReportData(List<CategoryReportData> rows) {
+        double grandTotal = rows.stream().mapToDouble(CategoryReportData::getTotalAmount).sum();
+        grandTotalLabel.setText(String.format("Grand Total: K %.2f", grandTotal));
+        reportTable.setItems(FXCollections.observableArrayList(rows));
     }
 }
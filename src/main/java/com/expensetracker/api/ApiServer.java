@@ -0,0 +1,355 @@
+package com.expensetracker.api;
+
+import com.expensetracker.managers.BudgetManager;
+import com.expensetracker.managers.BudgetTracker;
+import com.expensetracker.model.Budget;
+import com.expensetracker.model.CategoryReportData;
+import com.expensetracker.store.ExpenseQuery;
+import com.expensetracker.store.ExpenseStore;
+import com.expensetracker.store.QueryResult;
+import com.expensetracker.store.RowOrder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import javafx.application.Platform;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Read-only HTTP/JSON API on the loopback interface, for local dashboards and scripts:
+ * <pre>
+ *   GET /api/expenses            a page of the matching expenses
+ *   GET /api/report/categories   total and share per category of the matching expenses
+ *   GET /api/budgets             each budget's spend in its current period
+ * </pre>
+ * Expenses are matched with the filter bar's criteria: {@code from}, {@code to} (YYYY-MM-DD),
+ * {@code category}, {@code min}, {@code max} and {@code q} for the search text. Pages take
+ * {@code offset}, {@code limit} and {@code sort}, a column name with a leading {@code -} for
+ * descending order.
+ * <p>
+ * Requests run concurrently, on a virtual thread each where the runtime has them. A query runs
+ * under the store's read lock, the way the filter's background queries do, and gives way as soon
+ * as the FX thread is waiting to write. The response is then built under the read lock, and only
+ * if the store has not changed since the query. A request that keeps losing to writes finally
+ * holds the lock for one query. Every response therefore reflects one store state, which it
+ * reports as {@code version}. Budget status belongs to the FX thread and is read there.
+ */
+public class ApiServer {
+    private static final Logger LOGGER = Logger.getLogger(ApiServer.class.getName());
+
+    private static final int DEFAULT_PORT = 8765;
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+    // Times a query gives way to writers before it holds the read lock until it is done
+    private static final int YIELDING_ATTEMPTS = 3;
+    private static final long FX_TIMEOUT_SECONDS = 5;
+    // Request threads when the runtime has no virtual threads
+    private static final int POOL_THREADS = 8;
+
+    private final ExpenseStore store;
+    private final BudgetManager budgetManager;
+    private final BudgetTracker budgetTracker;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public ApiServer(int port, ExpenseStore store, BudgetManager budgetManager, BudgetTracker budgetTracker) throws IOException {
+        this.store = store;
+        this.budgetManager = budgetManager;
+        this.budgetTracker = budgetTracker;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = requestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/expenses", exchange -> handle(exchange, this::expenses));
+        server.createContext("/api/report/categories", exchange -> handle(exchange, this::categoryReport));
+        server.createContext("/api/budgets", exchange -> handle(exchange, parameters -> onFxThread(this::budgets)));
+    }
+
+    /**
+     * The server configured by {@code api.enabled} and {@code api.port}, or null if it is disabled.
+     * Not started yet.
+     */
+    public static ApiServer fromConfig(Properties config, ExpenseStore store, BudgetManager budgetManager,
+                                       BudgetTracker budgetTracker) throws IOException {
+        if (!Boolean.parseBoolean(config.getProperty("api.enabled", "false").trim())) {
+            return null;
+        }
+        int port;
+        try {
+            port = Integer.parseInt(config.getProperty("api.port", String.valueOf(DEFAULT_PORT)).trim());
+        } catch (NumberFormatException e) {
+            port = DEFAULT_PORT;
+        }
+        return new ApiServer(port, store, budgetManager, budgetTracker);
+    }
+
+    public void start() {
+        server.start();
+        LOGGER.info("Query API listening on http://" + server.getAddress().getHostString() + ":" + getPort() + "/api/");
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // --- Endpoints ---
+
+    private String expenses(Map<String, String> parameters) {
+        ExpenseQuery query = query(parameters);
+        List<RowOrder.Key> sort = sortKeys(parameters.get("sort"));
+        int offset = intParameter(parameters, "offset", 0, 0, Integer.MAX_VALUE);
+        int limit = intParameter(parameters, "limit", DEFAULT_LIMIT, 0, MAX_LIMIT);
+        return read(query, result -> {
+            int[] rows = sort.isEmpty() ? result.getRows() : new RowOrder(store, sort).sort(result.getRows());
+            JsonWriter json = new JsonWriter().beginObject()
+                    .name("version").value(result.getModCount())
+                    .name("count").value(rows.length)
+                    .name("total").cents(result.getAggregates().getTotalCents())
+                    .name("offset").value(offset)
+                    .name("limit").value(limit)
+                    .name("expenses").beginArray();
+            for (int i = offset; i < rows.length && i - offset < limit; i++) {
+                int row = rows[i];
+                json.beginObject()
+                        .name("id").value(store.getId(row))
+                        .name("amount").cents(store.getCents(row))
+                        .name("category").value(store.getCategory(row))
+                        .name("date").value(LocalDate.ofEpochDay(store.getEpochDay(row)).toString())
+                        .name("description").value(store.getDescription(row))
+                        .endObject();
+            }
+            return json.endArray().endObject().toString();
+        });
+    }
+
+    private String categoryReport(Map<String, String> parameters) {
+        return read(query(parameters), result -> {
+            JsonWriter json = new JsonWriter().beginObject()
+                    .name("version").value(result.getModCount())
+                    .name("count").value(result.getRows().length)
+                    .name("total").cents(result.getAggregates().getTotalCents())
+                    .name("categories").beginArray();
+            for (CategoryReportData row : CategoryReportData.fromTotals(result.getAggregates().getCategoryTotals())) {
+                json.beginObject()
+                        .name("category").value(row.getCategoryName())
+                        .name("total").cents(Math.round(row.getTotalAmount() * 100))
+                        .name("percentage").value(row.getPercentage())
+                        .endObject();
+            }
+            return json.endArray().endObject().toString();
+        });
+    }
+
+    /** Runs on the FX thread, which owns the budgets and the tracker. */
+    private String budgets() {
+        JsonWriter json = new JsonWriter().beginObject()
+                .name("version").value(store.getModCount())
+                .name("budgets").beginArray();
+        for (Budget budget : budgetManager.getBudgets()) {
+            LocalDate[] period = budgetTracker.getCurrentPeriod(budget);
+            json.beginObject()
+                    .name("id").value(budget.getId())
+                    .name("category").value(budget.getCategory())
+                    .name("period").value(budget.getPeriod())
+                    .name("amount").cents(Math.round(budget.getBudgetAmount() * 100))
+                    .name("spent").cents(Math.round(budgetTracker.getSpent(budget) * 100))
+                    .name("utilization").value(budgetTracker.getUtilization(budget))
+                    .name("periodStart").value(period == null ? null : period[0].toString())
+                    .name("periodEnd").value(period == null ? null : period[1].toString())
+                    .endObject();
+        }
+        return json.endArray().endObject().toString();
+    }
+
+    // --- Consistent reads ---
+
+    /**
+     * Runs the query and renders its result under the read lock, retrying while writes get in
+     * between. If writes keep getting in, the last attempt makes them wait for one query.
+     */
+    private String read(ExpenseQuery query, Function<QueryResult, String> render) {
+        for (int attempt = 0; attempt < YIELDING_ATTEMPTS; attempt++) {
+            try {
+                QueryResult result = store.query(query, null, () -> false);
+                String body = store.withReadLock(
+                        () -> store.getModCount() == result.getModCount() ? render.apply(result) : null);
+                if (body != null) return body;
+            } catch (CancellationException e) {
+                // A write was waiting; it goes first and the query runs again
+            }
+        }
+        return store.queryAndRead(query, render);
+    }
+
+    private static String onFxThread(Supplier<String> reader) {
+        CompletableFuture<String> body = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                body.complete(reader.get());
+            } catch (RuntimeException e) {
+                body.completeExceptionally(e);
+            }
+        });
+        try {
+            return body.get(FX_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            throw new CancellationException("The application is busy; try again");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+        }
+    }
+
+    // --- Requests ---
+
+    private void handle(HttpExchange exchange, Function<Map<String, String>, String> endpoint) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath())) {
+                respond(exchange, 404, error("Not found"));
+                return;
+            }
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                respond(exchange, 405, error("Only GET is supported"));
+                return;
+            }
+            String body;
+            try {
+                body = endpoint.apply(parameters(exchange.getRequestURI().getRawQuery()));
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, error(e.getMessage()));
+                return;
+            } catch (CancellationException e) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 503, error(e.getMessage()));
+                return;
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Query API request failed: " + exchange.getRequestURI(), e);
+                respond(exchange, 500, error("Internal error"));
+                return;
+            }
+            respond(exchange, 200, body);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String error(String message) {
+        return new JsonWriter().beginObject().name("error").value(message).endObject().toString();
+    }
+
+    private static Map<String, String> parameters(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return parameters;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            parameters.put(name, value);
+        }
+        return parameters;
+    }
+
+    /** The same criteria as the filter bar; see {@code ExpenseFilter}. */
+    private static ExpenseQuery query(Map<String, String> parameters) {
+        return new ExpenseQuery(dateParameter(parameters, "from"), dateParameter(parameters, "to"),
+                parameters.get("category"), amountParameter(parameters, "min"), amountParameter(parameters, "max"),
+                parameters.get("q"));
+    }
+
+    private static List<RowOrder.Key> sortKeys(String sort) {
+        if (sort == null || sort.isEmpty()) return List.of();
+        boolean ascending = !sort.startsWith("-");
+        String name = ascending ? sort : sort.substring(1);
+        try {
+            return List.of(new RowOrder.Key(RowOrder.Column.valueOf(name.toUpperCase(Locale.ROOT)), ascending));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("sort must be amount, date, category or description: " + sort);
+        }
+    }
+
+    private static LocalDate dateParameter(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null || value.isEmpty()) return null;
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " must be a date like 2024-01-31: " + value);
+        }
+    }
+
+    private static Double amountParameter(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null || value.isEmpty()) return null;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number: " + value);
+        }
+    }
+
+    private static int intParameter(Map<String, String> parameters, String name, int defaultValue, int min, int max) {
+        String value = parameters.get(name);
+        if (value == null || value.isEmpty()) return defaultValue;
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < min || parsed > max) {
+                throw new IllegalArgumentException(name + " must be between " + min + " and " + max + ": " + value);
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a whole number: " + value);
+        }
+    }
+
+    /**
+     * A virtual thread per request on Java 21 and later. The build targets Java 17, so the
+     * factory is looked up reflectively, and older runtimes get a small pool of daemon threads.
+     */
+    private static ExecutorService requestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(POOL_THREADS, r -> {
+                Thread t = new Thread(r, "query-api");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.expensetracker.cli;
+
+import com.expensetracker.file.FileManager;
+import com.expensetracker.file.FileManagerFactory;
+import com.expensetracker.managers.ExpenseManager;
+import com.expensetracker.managers.RecurringExpenseManager;
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.GroupStatisticsReportData;
+import com.expensetracker.report.ReportEngine;
+import com.expensetracker.store.ExpenseQuery;
+import com.expensetracker.util.ExpenseImporter;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Headless entry point for batch jobs. Runs one command against the storage configured in
+ * {@code config.properties}, the same storage the app uses, without starting the JavaFX toolkit.
+ * <pre>
+ *   import FILE|-                                  add the expenses in an expense CSV
+ *   generate-recurring                             generate the recurring expenses due up to today
+ *   report [FILTERS] [--group-by G] [--output FILE]  statistics per category, month, weekday or description
+ *   export [FILTERS] [--output FILE]               the expenses as CSV
+ *
+ *   FILTERS: --from YYYY-MM-DD --to YYYY-MM-DD --category NAME
+ * </pre>
+ * Files are streamed. An import validates and adds the input a batch at a time, and an export
+ * copies expenses to the output as the storage reads them, so neither holds a whole file on the heap.
+ * Output goes to stdout unless {@code --output} is given. Results and the time since the JVM
+ * started go to stderr.
+ * <p>
+ * Exits with 0 on success, 1 if the command failed and 2 on a usage error.
+ */
+public final class ExpenseCli {
+    private static final Logger LOGGER = Logger.getLogger(ExpenseCli.class.getName());
+
+    private static final int EXIT_FAILURE = 1;
+    private static final int EXIT_USAGE = 2;
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: ExpenseCli COMMAND [OPTIONS]",
+            "  import FILE|-                                    add the expenses in an expense CSV (- reads stdin)",
+            "  generate-recurring                               generate the recurring expenses due up to today",
+            "  report [FILTERS] [--group-by G] [--output FILE]  G is category, month, weekday or description",
+            "  export [FILTERS] [--output FILE]                 write the expenses as CSV",
+            "FILTERS: --from YYYY-MM-DD --to YYYY-MM-DD --category NAME");
+
+    private static final CSVFormat EXPORT_FORMAT = CSVFormat.DEFAULT.builder()
+            .setHeader("id", "amount", "category", "date", "description")
+            .build();
+
+    private static final CSVFormat REPORT_FORMAT = CSVFormat.DEFAULT.builder()
+            .setHeader("group", "total", "percentage", "count", "mean", "median", "p90", "p99", "standardDeviation")
+            .build();
+
+    private static final Set<String> COMMANDS = Set.of("import", "generate-recurring", "report", "export");
+
+    private final List<String> arguments = new ArrayList<>();
+    private final Map<String, String> options = new HashMap<>();
+    private final ExpenseQuery query;
+    private final ReportEngine.GroupBy groupBy;
+
+    /** Parses and checks the arguments, so usage errors surface before storage is opened. */
+    private ExpenseCli(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--")) {
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("Missing value for " + args[i]);
+                }
+                options.put(args[i].substring(2), args[++i]);
+            } else {
+                arguments.add(args[i]);
+            }
+        }
+        if (arguments.isEmpty()) {
+            throw new IllegalArgumentException("Missing command");
+        }
+        if (!COMMANDS.contains(arguments.get(0))) {
+            throw new IllegalArgumentException("Unknown command: " + arguments.get(0));
+        }
+        if (arguments.get(0).equals("import") != (arguments.size() == 2) || arguments.size() > 2) {
+            throw new IllegalArgumentException("Only import takes an argument, a file");
+        }
+        query = new ExpenseQuery(date("from"), date("to"), options.get("category"), null, null, null);
+        groupBy = groupBy(options.getOrDefault("group-by", "category"));
+    }
+
+    public static void main(String[] args) {
+        ExpenseCli cli;
+        try {
+            cli = new ExpenseCli(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(EXIT_USAGE);
+            return;
+        }
+        System.exit(cli.run());
+    }
+
+    private int run() {
+        String command = arguments.get(0);
+        FileManager fileManager = FileManagerFactory.getFileManager();
+        try {
+            int status;
+            switch (command) {
+                case "import":
+                    status = importExpenses(fileManager);
+                    break;
+                case "generate-recurring":
+                    status = generateRecurring(fileManager);
+                    break;
+                case "report":
+                    status = report(fileManager);
+                    break;
+                case "export":
+                    status = export(fileManager);
+                    break;
+                default:
+                    throw new IllegalStateException("Unchecked command: " + command);
+            }
+            System.err.printf("%s finished; %d ms since JVM start%n",
+                    command, ManagementFactory.getRuntimeMXBean().getUptime());
+            return status;
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.log(Level.SEVERE, command + " failed", e);
+            return EXIT_FAILURE;
+        } finally {
+            // Flushes any write-behind queue
+            fileManager.close();
+        }
+    }
+
+    /**
+     * Storage with row-level writes gets each batch as it is validated. Anything else would
+     * rewrite the whole file per batch, so there the batches go to the store and are saved once.
+     */
+    private int importExpenses(FileManager fileManager) throws IOException {
+        String file = arguments.get(1);
+        ExpenseManager expenseManager = new ExpenseManager(fileManager);
+        boolean rowWrites = fileManager.supportsRowLevelWrites();
+        ExpenseImporter.ImportResult result;
+        try (Reader reader = "-".equals(file)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            result = new ExpenseImporter().importCsv(reader,
+                    rowWrites ? expenseManager::addAll : expenseManager::addAllUnsaved);
+        }
+        if (!rowWrites && result.getImportedCount() > 0) {
+            expenseManager.saveAll();
+        }
+        System.err.println(result.summary());
+        return result.getFatalError() == null ? 0 : EXIT_FAILURE;
+    }
+
+    private int generateRecurring(FileManager fileManager) {
+        ExpenseManager expenseManager = new ExpenseManager(fileManager);
+        RecurringExpenseManager recurringExpenseManager = new RecurringExpenseManager(fileManager, expenseManager);
+        RecurringExpenseManager.DueBatch due = recurringExpenseManager.collectDue(LocalDate.now());
+        recurringExpenseManager.apply(due);
+        System.err.printf("Generated %d recurring expense(s).%n", due.getExpenseCount());
+        return 0;
+    }
+
+    /** The same grouped statistics as the report window, as CSV. */
+    private int report(FileManager fileManager) throws IOException {
+        ExpenseManager expenseManager = new ExpenseManager(fileManager);
+        List<GroupStatisticsReportData> groups = new ReportEngine().run(expenseManager.getStore(), query, groupBy);
+        try (CSVPrinter printer = new CSVPrinter(openOutput(), REPORT_FORMAT)) {
+            for (GroupStatisticsReportData group : groups) {
+                printer.printRecord(
+                        group.getCategoryName(),
+                        String.format("%.2f", group.getTotalAmount()),
+                        String.format("%.2f", group.getPercentage()),
+                        group.getCount(),
+                        String.format("%.2f", group.getMean()),
+                        String.format("%.2f", group.getMedian()),
+                        String.format("%.2f", group.getP90()),
+                        String.format("%.2f", group.getP99()),
+                        String.format("%.2f", group.getStandardDeviation()));
+            }
+        }
+        return 0;
+    }
+
+    /** Copies matching expenses straight from storage to the output, without loading them into the store. */
+    private int export(FileManager fileManager) throws IOException {
+        try (CSVPrinter printer = new CSVPrinter(openOutput(), EXPORT_FORMAT)) {
+            fileManager.loadExpenses(expense -> {
+                if (!matches(expense, query)) return;
+                try {
+                    printer.printRecord(
+                            expense.getId(),
+                            String.format("%.2f", expense.getAmount()),
+                            expense.getCategory(),
+                            expense.getDate().toString(),
+                            expense.getDescription() == null ? "" : expense.getDescription());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        return 0;
+    }
+
+    private static boolean matches(Expense expense, ExpenseQuery query) {
+        long day = expense.getDate().toEpochDay();
+        return day >= query.getFromDay() && day <= query.getToDay()
+                && (query.getCategory() == null || query.getCategory().equals(expense.getCategory()));
+    }
+
+    private LocalDate date(String option) {
+        String value = options.get(option);
+        if (value == null) return null;
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("--" + option + " must be a date like 2024-01-31: " + value);
+        }
+    }
+
+    private static ReportEngine.GroupBy groupBy(String value) {
+        try {
+            return ReportEngine.GroupBy.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("--group-by must be category, month, weekday or description: " + value);
+        }
+    }
+
+    private Writer openOutput() throws IOException {
+        String file = options.get("output");
+        return file == null
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,280 @@
+package com.expensetracker.file;
+
+import com.expensetracker.model.Budget;
+import com.expensetracker.model.Category;
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.RecurringExpense;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps all four entities in compact, versioned binary snapshots (see {@link BinarySnapshot}).
+ * If a snapshot is missing or fails validation, the data is read from the interchange store
+ * (normally the CSV files) and a fresh snapshot is written. With CSV mirroring enabled every save
+ * also updates the interchange files, otherwise CSV is only used for import/export.
+ */
+public class BinaryFileManager implements FileManager {
+    private static final Logger LOGGER = Logger.getLogger(BinaryFileManager.class.getName());
+
+    private static final Path EXPENSES_FILE = Paths.get("expenses.bin");
+    private static final Path CATEGORIES_FILE = Paths.get("categories.bin");
+    private static final Path RECURRING_EXPENSES_FILE = Paths.get("recurring_expenses.bin");
+    private static final Path BUDGETS_FILE = Paths.get("budgets.bin");
+
+    private final FileManager interchange;
+    private final boolean mirrorInterchange;
+
+    public BinaryFileManager(FileManager interchange, boolean mirrorInterchange) {
+        this.interchange = interchange;
+        this.mirrorInterchange = mirrorInterchange;
+    }
+
+    // --- Expenses ---
+
+    @Override
+    public void saveExpenses(List<Expense> expenses) {
+        try {
+            saveExpensesChecked(expenses);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Could not write expense snapshot", e);
+        }
+    }
+
+    @Override
+    public void saveExpensesChecked(List<Expense> expenses) throws IOException {
+        writeExpensesSnapshot(expenses);
+        if (mirrorInterchange) {
+            interchange.saveExpensesChecked(expenses);
+        }
+    }
+
+    private void writeExpensesSnapshot(List<Expense> expenses) throws IOException {
+        try (BinarySnapshot.Writer writer = new BinarySnapshot.Writer(EXPENSES_FILE, BinarySnapshot.ENTITY_EXPENSES)) {
+            for (Expense expense : expenses) {
+                writer.intern(expense.getCategory());
+            }
+            writer.writeDictionary();
+            for (Expense expense : expenses) {
+                writer.putId(expense.getId());
+                writer.putCents(expense.getAmount());
+                writer.putInt((int) expense.getDate().toEpochDay());
+                writer.putVarInt(writer.dictionaryId(expense.getCategory()));
+                writer.putString(expense.getDescription());
+                writer.endRecord();
+            }
+            writer.commit();
+        }
+    }
+
+    @Override
+    public ObservableList<Expense> loadExpenses() {
+        List<Expense> expenses = new ArrayList<>();
+        loadExpenses(expenses::add);
+        return FXCollections.observableList(expenses);
+    }
+
+    @Override
+    public void loadExpenses(Consumer<? super Expense> sink) {
+        BinarySnapshot.Reader reader = null;
+        if (Files.exists(EXPENSES_FILE)) {
+            try {
+                reader = new BinarySnapshot.Reader(EXPENSES_FILE, BinarySnapshot.ENTITY_EXPENSES);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Expense snapshot unreadable, rebuilding from interchange files", e);
+            }
+        }
+        if (reader == null) {
+            ObservableList<Expense> expenses = interchange.loadExpenses();
+            saveExpenses(expenses);
+            expenses.forEach(sink);
+            return;
+        }
+        // Every block's checksum was verified on open, so records can go out as they are decoded
+        while (reader.nextRecord()) {
+            String id = reader.getId();
+            double amount = reader.getCents();
+            LocalDate date = LocalDate.ofEpochDay(reader.getInt());
+            String category = reader.dictionaryValue(reader.getVarInt());
+            String description = reader.getString();
+            sink.accept(new Expense(id, amount, category, date, description));
+        }
+    }
+
+    // --- Categories ---
+
+    @Override
+    public void saveCategories(List<Category> categories) {
+        writeCategoriesSnapshot(categories);
+        if (mirrorInterchange) {
+            interchange.saveCategories(categories);
+        }
+    }
+
+    private void writeCategoriesSnapshot(List<Category> categories) {
+        try (BinarySnapshot.Writer writer = new BinarySnapshot.Writer(CATEGORIES_FILE, BinarySnapshot.ENTITY_CATEGORIES)) {
+            writer.writeDictionary();
+            for (Category category : categories) {
+                writer.putId(category.getId());
+                writer.putString(category.getUserId());
+                writer.putString(category.getName());
+                writer.putString(category.getColor());
+                writer.putString(category.getIcon());
+                writer.endRecord();
+            }
+            writer.commit();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Could not write category snapshot", e);
+        }
+    }
+
+    @Override
+    public ObservableList<Category> loadCategories() {
+        if (Files.exists(CATEGORIES_FILE)) {
+            try {
+                BinarySnapshot.Reader reader = new BinarySnapshot.Reader(CATEGORIES_FILE, BinarySnapshot.ENTITY_CATEGORIES);
+                ObservableList<Category> categories = FXCollections.observableArrayList();
+                while (reader.nextRecord()) {
+                    categories.add(new Category(reader.getId(), reader.getString(), reader.getString(),
+                            reader.getString(), reader.getString()));
+                }
+                return categories;
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Category snapshot unreadable, rebuilding from interchange files", e);
+            }
+        }
+        ObservableList<Category> categories = interchange.loadCategories();
+        writeCategoriesSnapshot(categories);
+        return categories;
+    }
+
+    // --- Recurring expenses ---
+
+    @Override
+    public void saveRecurringExpenses(List<RecurringExpense> recurringExpenses) {
+        writeRecurringExpensesSnapshot(recurringExpenses);
+        if (mirrorInterchange) {
+            interchange.saveRecurringExpenses(recurringExpenses);
+        }
+    }
+
+    private void writeRecurringExpensesSnapshot(List<RecurringExpense> recurringExpenses) {
+        try (BinarySnapshot.Writer writer = new BinarySnapshot.Writer(RECURRING_EXPENSES_FILE, BinarySnapshot.ENTITY_RECURRING_EXPENSES)) {
+            for (RecurringExpense recurringExpense : recurringExpenses) {
+                writer.intern(recurringExpense.getCategory());
+            }
+            writer.writeDictionary();
+            for (RecurringExpense recurringExpense : recurringExpenses) {
+                writer.putId(recurringExpense.getId());
+                writer.putCents(recurringExpense.getAmount());
+                writer.putVarInt(writer.dictionaryId(recurringExpense.getCategory()));
+                writer.putInt((int) recurringExpense.getStartDate().toEpochDay());
+                writer.putString(recurringExpense.getFrequency());
+                writer.putString(recurringExpense.getDescription());
+                LocalDate lastGenerated = recurringExpense.getLastGenerated();
+                writer.putInt(lastGenerated == null ? BinarySnapshot.NO_DATE : (int) lastGenerated.toEpochDay());
+                writer.endRecord();
+            }
+            writer.commit();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Could not write recurring expense snapshot", e);
+        }
+    }
+
+    @Override
+    public ObservableList<RecurringExpense> loadRecurringExpenses() {
+        if (Files.exists(RECURRING_EXPENSES_FILE)) {
+            try {
+                BinarySnapshot.Reader reader = new BinarySnapshot.Reader(RECURRING_EXPENSES_FILE, BinarySnapshot.ENTITY_RECURRING_EXPENSES);
+                ObservableList<RecurringExpense> recurringExpenses = FXCollections.observableArrayList();
+                while (reader.nextRecord()) {
+                    String id = reader.getId();
+                    double amount = reader.getCents();
+                    String category = reader.dictionaryValue(reader.getVarInt());
+                    LocalDate startDate = LocalDate.ofEpochDay(reader.getInt());
+                    String frequency = reader.getString();
+                    String description = reader.getString();
+                    LocalDate lastGenerated = null;
+                    if (reader.version() >= 2) {
+                        int day = reader.getInt();
+                        lastGenerated = day == BinarySnapshot.NO_DATE ? null : LocalDate.ofEpochDay(day);
+                    }
+                    recurringExpenses.add(new RecurringExpense(id, amount, category, startDate, frequency, description, lastGenerated));
+                }
+                return recurringExpenses;
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Recurring expense snapshot unreadable, rebuilding from interchange files", e);
+            }
+        }
+        ObservableList<RecurringExpense> recurringExpenses = interchange.loadRecurringExpenses();
+        writeRecurringExpensesSnapshot(recurringExpenses);
+        return recurringExpenses;
+    }
+
+    // --- Budgets ---
+
+    @Override
+    public void saveBudgets(List<Budget> budgets) {
+        writeBudgetsSnapshot(budgets);
+        if (mirrorInterchange) {
+            interchange.saveBudgets(budgets);
+        }
+    }
+
+    private void writeBudgetsSnapshot(List<Budget> budgets) {
+        try (BinarySnapshot.Writer writer = new BinarySnapshot.Writer(BUDGETS_FILE, BinarySnapshot.ENTITY_BUDGETS)) {
+            for (Budget budget : budgets) {
+                writer.intern(budget.getCategory());
+            }
+            writer.writeDictionary();
+            for (Budget budget : budgets) {
+                writer.putId(budget.getId());
+                writer.putVarInt(writer.dictionaryId(budget.getCategory()));
+                writer.putCents(budget.getBudgetAmount());
+                writer.putString(budget.getPeriod());
+                writer.endRecord();
+            }
+            writer.commit();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Could not write budget snapshot", e);
+        }
+    }
+
+    @Override
+    public ObservableList<Budget> loadBudgets() {
+        if (Files.exists(BUDGETS_FILE)) {
+            try {
+                BinarySnapshot.Reader reader = new BinarySnapshot.Reader(BUDGETS_FILE, BinarySnapshot.ENTITY_BUDGETS);
+                ObservableList<Budget> budgets = FXCollections.observableArrayList();
+                while (reader.nextRecord()) {
+                    String id = reader.getId();
+                    String category = reader.dictionaryValue(reader.getVarInt());
+                    double budgetAmount = reader.getCents();
+                    String period = reader.getString();
+                    budgets.add(new Budget(id, category, budgetAmount, period));
+                }
+                return budgets;
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Budget snapshot unreadable, rebuilding from interchange files", e);
+            }
+        }
+        ObservableList<Budget> budgets = interchange.loadBudgets();
+        writeBudgetsSnapshot(budgets);
+        return budgets;
+    }
+
+    @Override
+    public void close() {
+        interchange.close();
+    }
+}
@@ -0,0 +1,342 @@
+package com.expensetracker.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Low-level block format shared by the binary snapshot files.
+ * <pre>
+ * file    := magic:int version:short entity:byte block* end
+ * block   := recordCount:int payloadLength:int crc32:int payload
+ * end     := 0:int 0:int 0:int
+ * </pre>
+ * The first block of every file holds the string dictionary (category names), so records can refer
+ * to categories by dictionary id. Amounts are fixed-point cents, dates are epoch days and UUID ids
+ * are stored as two longs. Everything is little-endian.
+ */
+final class BinarySnapshot {
+    static final int MAGIC = 0x53544550; // "PETS" little-endian
+    static final short VERSION = 2;
+    // Version 2 added the last-generated date to recurring expense records
+    static final short OLDEST_READABLE_VERSION = 1;
+    // Stands in for a missing date, which epoch-day fields cannot otherwise express
+    static final int NO_DATE = Integer.MIN_VALUE;
+
+    static final byte ENTITY_EXPENSES = 1;
+    static final byte ENTITY_CATEGORIES = 2;
+    static final byte ENTITY_RECURRING_EXPENSES = 3;
+    static final byte ENTITY_BUDGETS = 4;
+
+    private static final int HEADER_BYTES = 7;
+    private static final int BLOCK_HEADER_BYTES = 12;
+    private static final int RECORDS_PER_BLOCK = 65536;
+    private static final int BLOCK_BYTES_TARGET = 1 << 20;
+
+    private static final byte ID_UUID = 0;
+    private static final byte ID_STRING = 1;
+
+    private BinarySnapshot() {
+    }
+
+    /** Thrown when a snapshot is missing, truncated, from another version or fails its CRC. */
+    static final class CorruptSnapshotException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        CorruptSnapshotException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Writes one snapshot file. Output goes to a temporary file that replaces the target
+     * atomically on {@link #commit()}.
+     */
+    static final class Writer implements AutoCloseable {
+        private final Path target;
+        private final Path temp;
+        private final FileChannel channel;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<String> dictionaryOrder = new ArrayList<>();
+        private ByteBuffer block = ByteBuffer.allocate(BLOCK_BYTES_TARGET + 4096).order(ByteOrder.LITTLE_ENDIAN);
+        private int blockRecords;
+        private boolean committed;
+
+        Writer(Path target, byte entity) throws IOException {
+            this.target = target;
+            this.temp = Paths.get(target.toString() + ".tmp");
+            this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putShort(VERSION).put(entity).flip();
+            writeFully(header);
+        }
+
+        /** Registers a dictionary string; must be called for every value before {@link #writeDictionary()}. */
+        int intern(String value) {
+            String key = value == null ? "" : value;
+            Integer id = dictionary.get(key);
+            if (id == null) {
+                id = dictionaryOrder.size();
+                dictionary.put(key, id);
+                dictionaryOrder.add(key);
+            }
+            return id;
+        }
+
+        /** Writes the dictionary as a single record in its own block, even when it is empty. */
+        void writeDictionary() throws IOException {
+            putVarInt(dictionaryOrder.size());
+            for (String value : dictionaryOrder) {
+                putString(value);
+            }
+            endRecord();
+            flushBlock();
+        }
+
+        int dictionaryId(String value) {
+            return dictionary.get(value == null ? "" : value);
+        }
+
+        void putId(String id) {
+            UUID uuid = parseUuid(id);
+            if (uuid != null) {
+                ensure(17);
+                block.put(ID_UUID).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+            } else {
+                ensure(1);
+                block.put(ID_STRING);
+                putString(id);
+            }
+        }
+
+        void putCents(double amount) {
+            ensure(8);
+            block.putLong(Math.round(amount * 100));
+        }
+
+        void putInt(int value) {
+            ensure(4);
+            block.putInt(value);
+        }
+
+        void putVarInt(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                block.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            block.put((byte) value);
+        }
+
+        void putString(String value) {
+            byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+            putVarInt(bytes.length);
+            ensure(bytes.length);
+            block.put(bytes);
+        }
+
+        void endRecord() throws IOException {
+            blockRecords++;
+            if (blockRecords >= RECORDS_PER_BLOCK || block.position() >= BLOCK_BYTES_TARGET) {
+                flushBlock();
+            }
+        }
+
+        void flushBlock() throws IOException {
+            if (blockRecords == 0) return;
+            block.flip();
+            CRC32 crc = new CRC32();
+            crc.update(block.duplicate());
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(blockRecords).putInt(block.remaining()).putInt((int) crc.getValue()).flip();
+            writeFully(header);
+            writeFully(block);
+            block.clear();
+            blockRecords = 0;
+        }
+
+        void commit() throws IOException {
+            flushBlock();
+            ByteBuffer end = ByteBuffer.allocate(BLOCK_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            end.putInt(0).putInt(0).putInt(0).flip();
+            writeFully(end);
+            channel.force(false);
+            channel.close();
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        private void ensure(int bytes) {
+            if (block.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(block.capacity() * 2, block.position() + bytes))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                block.flip();
+                larger.put(block);
+                block = larger;
+            }
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /** Reads a snapshot file with one bulk read and validates every block's CRC up front. */
+    static final class Reader {
+        private final ByteBuffer data;
+        private final List<String> dictionary = new ArrayList<>();
+        private final short version;
+        private int blockRecordsLeft;
+        private int blockEnd;
+        private boolean finished;
+
+        Reader(Path path, byte entity) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) throw new CorruptSnapshotException("snapshot too large: " + path);
+                data = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+                while (data.hasRemaining()) {
+                    if (channel.read(data) < 0) break;
+                }
+                data.flip();
+            }
+            if (data.remaining() < HEADER_BYTES || data.getInt() != MAGIC) {
+                throw new CorruptSnapshotException("not a snapshot file: " + path);
+            }
+            version = data.getShort();
+            if (version < OLDEST_READABLE_VERSION || version > VERSION) {
+                throw new CorruptSnapshotException("unsupported snapshot version " + version);
+            }
+            if (data.get() != entity) throw new CorruptSnapshotException("snapshot holds a different entity: " + path);
+            verifyBlocks();
+
+            if (!nextRecord()) throw new CorruptSnapshotException("snapshot has no dictionary: " + path);
+            int dictionarySize = getVarInt();
+            for (int i = 0; i < dictionarySize; i++) {
+                dictionary.add(getString());
+            }
+        }
+
+        /** Format version the file was written with. */
+        short version() {
+            return version;
+        }
+
+        private void verifyBlocks() throws CorruptSnapshotException {
+            int pos = data.position();
+            CRC32 crc = new CRC32();
+            while (true) {
+                if (data.limit() - pos < BLOCK_HEADER_BYTES) throw new CorruptSnapshotException("truncated snapshot");
+                int records = data.getInt(pos);
+                int length = data.getInt(pos + 4);
+                int expected = data.getInt(pos + 8);
+                pos += BLOCK_HEADER_BYTES;
+                if (records == 0 && length == 0) return;
+                if (records < 0 || length < 0 || data.limit() - pos < length) {
+                    throw new CorruptSnapshotException("truncated snapshot block");
+                }
+                crc.reset();
+                crc.update(data.duplicate().position(pos).limit(pos + length));
+                if ((int) crc.getValue() != expected) throw new CorruptSnapshotException("snapshot block failed CRC check");
+                pos += length;
+            }
+        }
+
+        /** Advances to the next record, crossing block boundaries as needed. */
+        boolean nextRecord() {
+            if (finished) return false;
+            if (blockRecordsLeft == 0) {
+                data.position(Math.max(data.position(), blockEnd));
+                int records = data.getInt();
+                int length = data.getInt();
+                data.getInt(); // CRC, already verified
+                if (records == 0 && length == 0) {
+                    finished = true;
+                    return false;
+                }
+                blockRecordsLeft = records;
+                blockEnd = data.position() + length;
+            }
+            blockRecordsLeft--;
+            return true;
+        }
+
+        int estimatedRecords() {
+            return Math.max(16, data.remaining() / 32);
+        }
+
+        String dictionaryValue(int id) {
+            return dictionary.get(id);
+        }
+
+        String getId() {
+            byte kind = data.get();
+            if (kind == ID_UUID) {
+                return new UUID(data.getLong(), data.getLong()).toString();
+            }
+            return getString();
+        }
+
+        double getCents() {
+            return data.getLong() / 100.0;
+        }
+
+        int getInt() {
+            return data.getInt();
+        }
+
+        int getVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data.get();
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        String getString() {
+            int length = getVarInt();
+            String value = new String(data.array(), data.arrayOffset() + data.position(), length, StandardCharsets.UTF_8);
+            data.position(data.position() + length);
+            return value;
+        }
+    }
+
+    /** Returns the UUID only if the id is in canonical form, so the round trip is lossless. */
+    private static UUID parseUuid(String id) {
+        if (id == null || id.length() != 36) return null;
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
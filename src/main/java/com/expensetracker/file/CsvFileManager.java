@@ -15,11 +15,18 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 // ...existing code...
 
 public class CsvFileManager implements FileManager {
@@ -30,27 +37,35 @@ public class CsvFileManager implements FileManager {
 
     private static final CSVFormat EXPENSES_FORMAT = CSVFormat.DEFAULT.builder()
         .setHeader("id", "amount", "category", "date", "description")
-        .setSkipHeaderRecord(true)
         .build();
 
     private static final CSVFormat CATEGORIES_FORMAT = CSVFormat.DEFAULT.builder()
         .setHeader("userId", "name", "color", "icon")
-        .setSkipHeaderRecord(true)
         .build();
 
     private static final CSVFormat RECURRING_EXPENSES_FORMAT = CSVFormat.DEFAULT.builder()
-        .setHeader("id", "amount", "category", "startDate", "frequency", "description")
-        .setSkipHeaderRecord(true)
+        .setHeader("id", "amount", "category", "startDate", "frequency", "description", "lastGenerated")
         .build();
 
     private static final CSVFormat BUDGETS_FORMAT = CSVFormat.DEFAULT.builder()
         .setHeader("id", "category", "budgetAmount", "period")
-        .setSkipHeaderRecord(true)
         .build();
 
     @Override
     public void saveExpenses(List<Expense> expenses) {
-        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(EXPENSES_FILE), StandardCharsets.UTF_8);
+        try {
+            saveExpensesChecked(expenses);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void saveExpensesChecked(List<Expense> expenses) throws IOException {
+        // Write to a temporary file first so a crash mid-save never leaves a truncated snapshot behind
+        Path target = Paths.get(EXPENSES_FILE);
+        Path temp = Paths.get(EXPENSES_FILE + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8);
              CSVPrinter csvPrinter = new CSVPrinter(writer, EXPENSES_FORMAT.withHeader("id", "amount", "category", "date", "description"))) {
             for (Expense expense : expenses) {
                 csvPrinter.printRecord(
@@ -62,38 +77,81 @@ public class CsvFileManager implements FileManager {
                 );
             }
             csvPrinter.flush();
-        } catch (IOException e) {
-            e.printStackTrace();
         }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     }
 
     @Override
     public ObservableList<Expense> loadExpenses() {
-        ObservableList<Expense> expenses = FXCollections.observableArrayList();
         File f = new File(EXPENSES_FILE);
-        if (!f.exists()) return expenses;
+        if (!f.exists()) return FXCollections.observableArrayList();
 
-        try (BufferedReader reader = Files.newBufferedReader(Paths.get(EXPENSES_FILE), StandardCharsets.UTF_8);
-             CSVParser parser = new CSVParser(reader, EXPENSES_FORMAT)) {
-            for (CSVRecord record : parser) {
-                try {
-                    String id = record.get("id");
-                    double amount = Double.parseDouble(record.get("amount"));
-                    String category = record.get("category");
-                    LocalDate date = LocalDate.parse(record.get("date"));
-                    String description = record.isMapped("description") ? record.get("description") : "";
-                    expenses.add(new Expense(id, amount, category, date, description));
-                } catch (Exception ex) {
-                    // Skip malformed record but continue parsing others
-                    ex.printStackTrace();
-                }
+        // Fast path: parallel windowed parse; null means the file needs the general parser
+        try {
+            List<Expense> loaded = ParallelCsvExpenseLoader.load(f.toPath());
+            if (loaded != null) {
+                return FXCollections.observableList(loaded);
             }
         } catch (IOException e) {
             e.printStackTrace();
         }
+
+        ObservableList<Expense> expenses = FXCollections.observableArrayList();
+        parseExpenses(0, expenses::add);
         return expenses;
     }
 
+    /**
+     * Streams the file: the fast parser hands over one window of expenses at a time, and the
+     * general parser one record at a time, so a history of any size is never held on the heap.
+     */
+    @Override
+    public void loadExpenses(Consumer<? super Expense> sink) {
+        Path path = Paths.get(EXPENSES_FILE);
+        if (!Files.exists(path)) return;
+
+        long resumeAt;
+        try {
+            resumeAt = ParallelCsvExpenseLoader.load(path, sink);
+        } catch (IOException e) {
+            // Some records may already be in the sink, so starting over would duplicate them
+            e.printStackTrace();
+            return;
+        }
+        if (resumeAt >= 0) {
+            parseExpenses(resumeAt, sink);
+        }
+    }
+
+    /** Parses expenses.csv with Commons CSV from a record boundary at {@code offset} bytes. */
+    private void parseExpenses(long offset, Consumer<? super Expense> sink) {
+        try (InputStream in = Files.newInputStream(Paths.get(EXPENSES_FILE))) {
+            in.skipNBytes(offset);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                 CSVParser parser = new CSVParser(reader, EXPENSES_FORMAT)) {
+                for (CSVRecord record : parser) {
+                    if (isHeaderRecord(record, EXPENSES_FORMAT)) continue;
+                    Expense expense;
+                    try {
+                        String id = record.get("id");
+                        double amount = Double.parseDouble(record.get("amount"));
+                        String category = record.get("category");
+                        LocalDate date = LocalDate.parse(record.get("date"));
+                        String description = record.isMapped("description") ? record.get("description") : "";
+                        expense = new Expense(id, amount, category, date, description);
+                    } catch (Exception ex) {
+                        // Skip malformed record but continue parsing others
+                        ex.printStackTrace();
+                        continue;
+                    }
+                    sink.accept(expense);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     @Override
     public void saveCategories(List<Category> categories) {
         try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(CATEGORIES_FILE), StandardCharsets.UTF_8);
@@ -121,6 +179,7 @@ public class CsvFileManager implements FileManager {
         try (BufferedReader reader = Files.newBufferedReader(Paths.get(CATEGORIES_FILE), StandardCharsets.UTF_8);
              CSVParser parser = new CSVParser(reader, CATEGORIES_FORMAT)) {
             for (CSVRecord record : parser) {
+                if (isHeaderRecord(record, CATEGORIES_FORMAT)) continue;
                 try {
                     String userId = record.get("userId");
                     String name = record.get("name");
@@ -141,7 +200,7 @@ public class CsvFileManager implements FileManager {
     @Override
     public void saveRecurringExpenses(List<RecurringExpense> recurringExpenses) {
         try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(RECURRING_EXPENSES_FILE), StandardCharsets.UTF_8);
-             CSVPrinter csvPrinter = new CSVPrinter(writer, RECURRING_EXPENSES_FORMAT.withHeader("id", "amount", "category", "startDate", "frequency", "description"))) {
+             CSVPrinter csvPrinter = new CSVPrinter(writer, RECURRING_EXPENSES_FORMAT.withHeader("id", "amount", "category", "startDate", "frequency", "description", "lastGenerated"))) {
             for (RecurringExpense recurringExpense : recurringExpenses) {
                 csvPrinter.printRecord(
                         recurringExpense.getId(),
@@ -149,7 +208,8 @@ public class CsvFileManager implements FileManager {
                         recurringExpense.getCategory(),
                         recurringExpense.getStartDate().toString(),
                         recurringExpense.getFrequency(),
-                        recurringExpense.getDescription() == null ? "" : recurringExpense.getDescription()
+                        recurringExpense.getDescription() == null ? "" : recurringExpense.getDescription(),
+                        recurringExpense.getLastGenerated() == null ? "" : recurringExpense.getLastGenerated().toString()
                 );
             }
             csvPrinter.flush();
@@ -167,6 +227,7 @@ public class CsvFileManager implements FileManager {
         try (BufferedReader reader = Files.newBufferedReader(Paths.get(RECURRING_EXPENSES_FILE), StandardCharsets.UTF_8);
              CSVParser parser = new CSVParser(reader, RECURRING_EXPENSES_FORMAT)) {
             for (CSVRecord record : parser) {
+                if (isHeaderRecord(record, RECURRING_EXPENSES_FORMAT)) continue;
                 try {
                     String id = record.get("id");
                     double amount = Double.parseDouble(record.get("amount"));
@@ -174,7 +235,10 @@ public class CsvFileManager implements FileManager {
                     LocalDate startDate = LocalDate.parse(record.get("startDate"));
                     String frequency = record.get("frequency");
                     String description = record.isMapped("description") ? record.get("description") : "";
-                    recurringExpenses.add(new RecurringExpense(id, amount, category, startDate, frequency, description));
+                    // Files written before the watermark existed have no lastGenerated column
+                    LocalDate lastGenerated = record.isSet("lastGenerated") && !record.get("lastGenerated").isEmpty()
+                            ? LocalDate.parse(record.get("lastGenerated")) : null;
+                    recurringExpenses.add(new RecurringExpense(id, amount, category, startDate, frequency, description, lastGenerated));
                 } catch (Exception ex) {
                     // Skip malformed record but continue parsing others
                     ex.printStackTrace();
@@ -213,6 +277,7 @@ public class CsvFileManager implements FileManager {
         try (BufferedReader reader = Files.newBufferedReader(Paths.get(BUDGETS_FILE), StandardCharsets.UTF_8);
              CSVParser parser = new CSVParser(reader, BUDGETS_FORMAT)) {
             for (CSVRecord record : parser) {
+                if (isHeaderRecord(record, BUDGETS_FORMAT)) continue;
                 try {
                     String id = record.get("id");
                     String category = record.get("category");
@@ -229,4 +294,13 @@ public class CsvFileManager implements FileManager {
         }
         return budgets;
     }
+
+    // Older saves omitted the header row, so only skip the first record if it really is the header
+    private static boolean isHeaderRecord(CSVRecord record, CSVFormat format) {
+        // Older files may carry only a leading subset of today's columns
+        String[] values = record.values();
+        String[] header = format.getHeader();
+        return record.getRecordNumber() == 1 && values.length <= header.length
+                && Arrays.equals(values, Arrays.copyOf(header, values.length));
+    }
 }
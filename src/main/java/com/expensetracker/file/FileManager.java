@@ -5,15 +5,101 @@ import com.expensetracker.model.Category;
 import com.expensetracker.model.Expense;
 import com.expensetracker.model.RecurringExpense;
 import javafx.collections.ObservableList;
+import java.io.IOException;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface FileManager {
     void saveExpenses(List<Expense> expenses);
     ObservableList<Expense> loadExpenses();
+
+    /**
+     * Saves like {@link #saveExpenses}, but throws when the expenses could not be written instead of
+     * only logging it, for callers that may drop their own copy of the changes only once it worked.
+     * Backends whose saves can fail quietly override this.
+     */
+    default void saveExpensesChecked(List<Expense> expenses) throws IOException {
+        saveExpenses(expenses);
+    }
+
+    /**
+     * Passes every stored expense to {@code sink} in load order. Backends that can read records one
+     * at a time override this, so the caller never holds the whole list.
+     */
+    default void loadExpenses(Consumer<? super Expense> sink) {
+        loadExpenses().forEach(sink);
+    }
     void saveCategories(List<Category> categories);
     ObservableList<Category> loadCategories();
     void saveRecurringExpenses(List<RecurringExpense> recurringExpenses);
     ObservableList<RecurringExpense> loadRecurringExpenses();
     void saveBudgets(List<Budget> budgets);
     ObservableList<Budget> loadBudgets();
+
+    // Single-record mutations. The full current list is passed along so that
+    // implementations without row-level storage can fall back to a full save.
+    default void insertExpense(Expense expense, List<Expense> expenses) {
+        saveExpenses(expenses);
+    }
+
+    default void insertExpenses(List<Expense> added, List<Expense> expenses) {
+        saveExpenses(expenses);
+    }
+
+    default void updateExpense(Expense expense, List<Expense> expenses) {
+        saveExpenses(expenses);
+    }
+
+    default void deleteExpense(Expense expense, List<Expense> expenses) {
+        saveExpenses(expenses);
+    }
+
+    default void insertCategory(Category category, List<Category> categories) {
+        saveCategories(categories);
+    }
+
+    default void updateCategory(Category category, List<Category> categories) {
+        saveCategories(categories);
+    }
+
+    default void deleteCategory(Category category, List<Category> categories) {
+        saveCategories(categories);
+    }
+
+    default void insertRecurringExpense(RecurringExpense recurringExpense, List<RecurringExpense> recurringExpenses) {
+        saveRecurringExpenses(recurringExpenses);
+    }
+
+    default void updateRecurringExpense(RecurringExpense recurringExpense, List<RecurringExpense> recurringExpenses) {
+        saveRecurringExpenses(recurringExpenses);
+    }
+
+    default void updateRecurringExpenses(List<RecurringExpense> updated, List<RecurringExpense> recurringExpenses) {
+        saveRecurringExpenses(recurringExpenses);
+    }
+
+    default void deleteRecurringExpense(RecurringExpense recurringExpense, List<RecurringExpense> recurringExpenses) {
+        saveRecurringExpenses(recurringExpenses);
+    }
+
+    default void insertBudget(Budget budget, List<Budget> budgets) {
+        saveBudgets(budgets);
+    }
+
+    default void updateBudget(Budget budget, List<Budget> budgets) {
+        saveBudgets(budgets);
+    }
+
+    default void deleteBudget(Budget budget, List<Budget> budgets) {
+        saveBudgets(budgets);
+    }
+
+    // True when the row-level methods above write just that record rather than a full save.
+    default boolean supportsRowLevelWrites() {
+        return false;
+    }
+
+    // Releases any open files or background workers held by the implementation.
+    default void close() {
+    }
 }
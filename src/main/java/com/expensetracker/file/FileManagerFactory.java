@@ -5,15 +5,61 @@ import java.io.IOException;
 import java.util.Properties;
 
 public class FileManagerFactory {
+    private static final int DEFAULT_JOURNAL_COMPACT_THRESHOLD = 10000;
+    private static final int DEFAULT_WRITE_BEHIND_DELAY_MS = 500;
+    private static final int DEFAULT_WRITE_BEHIND_MAX_DIRTY = 200;
+
     public static FileManager getFileManager() {
+        Properties prop = loadConfig();
+        FileManager fileManager = createStorage(prop);
+        if (Boolean.parseBoolean(prop.getProperty("writebehind.enabled", "false").trim())) {
+            fileManager = new WriteBehindFileManager(fileManager,
+                    intProperty(prop, "writebehind.delay.ms", DEFAULT_WRITE_BEHIND_DELAY_MS),
+                    intProperty(prop, "writebehind.max.dirty", DEFAULT_WRITE_BEHIND_MAX_DIRTY));
+        }
+        return fileManager;
+    }
+
+    /** The settings in config.properties; empty if there is no such file. */
+    public static Properties loadConfig() {
         Properties prop = new Properties();
         try (FileInputStream fis = new FileInputStream("config.properties")) {
             prop.load(fis);
-            
-            return new CsvFileManager();
         } catch (IOException e) {
-            // If config file is not found, default to CsvFileManager
-            return new CsvFileManager();
+            // If config file is not found, callers fall through to their defaults
+        }
+        return prop;
+    }
+
+    private static FileManager createStorage(Properties prop) {
+        String fileType = prop.getProperty("file.type", "csv").trim().toLowerCase();
+        switch (fileType) {
+            case "journal":
+                FileManager snapshotStore = "binary".equalsIgnoreCase(prop.getProperty("journal.snapshot", "csv").trim())
+                        ? binaryFileManager(prop)
+                        : new CsvFileManager();
+                return new JournalFileManager(snapshotStore,
+                        intProperty(prop, "journal.compact.threshold", DEFAULT_JOURNAL_COMPACT_THRESHOLD));
+            case "binary":
+                return binaryFileManager(prop);
+            case "h2":
+                return new H2FileManager(prop.getProperty("h2.url", H2FileManager.DEFAULT_URL).trim());
+            case "csv":
+            default:
+                return new CsvFileManager();
+        }
+    }
+
+    private static FileManager binaryFileManager(Properties prop) {
+        return new BinaryFileManager(new CsvFileManager(),
+                Boolean.parseBoolean(prop.getProperty("binary.mirror.csv", "false").trim()));
+    }
+
+    private static int intProperty(Properties prop, String key, int defaultValue) {
+        try {
+            return Integer.parseInt(prop.getProperty(key, String.valueOf(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
         }
     }
 }
@@ -0,0 +1,438 @@
+package com.expensetracker.file;
+
+import com.expensetracker.model.Budget;
+import com.expensetracker.model.Category;
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.RecurringExpense;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stores all four entities in an embedded H2 database. Single-record changes are written as
+ * row-level MERGE/DELETE statements so an edit costs the same regardless of history size.
+ * On first use the existing CSV files are migrated into the database once.
+ */
+public class H2FileManager implements FileManager {
+    private static final Logger LOGGER = Logger.getLogger(H2FileManager.class.getName());
+
+    public static final String DEFAULT_URL = "jdbc:h2:./expenses_db";
+
+    private static final String CSV_MIGRATED_KEY = "csv_migrated";
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS expenses ("
+            + "seq BIGINT GENERATED BY DEFAULT AS IDENTITY, "
+            + "id VARCHAR(64) PRIMARY KEY, "
+            + "amount DECIMAL(15, 2) NOT NULL, "
+            + "category VARCHAR(255) NOT NULL, "
+            + "expense_date DATE NOT NULL, "
+            + "description VARCHAR(4000))",
+        "CREATE INDEX IF NOT EXISTS idx_expenses_date ON expenses(expense_date)",
+        "CREATE INDEX IF NOT EXISTS idx_expenses_category ON expenses(category)",
+        "CREATE INDEX IF NOT EXISTS idx_expenses_seq ON expenses(seq)",
+        "CREATE TABLE IF NOT EXISTS categories ("
+            + "seq BIGINT GENERATED BY DEFAULT AS IDENTITY, "
+            + "id VARCHAR(64) PRIMARY KEY, "
+            + "user_id VARCHAR(255), "
+            + "name VARCHAR(255) NOT NULL, "
+            + "color VARCHAR(32), "
+            + "icon VARCHAR(255))",
+        "CREATE INDEX IF NOT EXISTS idx_categories_name ON categories(name)",
+        "CREATE TABLE IF NOT EXISTS recurring_expenses ("
+            + "seq BIGINT GENERATED BY DEFAULT AS IDENTITY, "
+            + "id VARCHAR(64) PRIMARY KEY, "
+            + "amount DECIMAL(15, 2) NOT NULL, "
+            + "category VARCHAR(255) NOT NULL, "
+            + "start_date DATE NOT NULL, "
+            + "frequency VARCHAR(255) NOT NULL, "
+            + "description VARCHAR(4000))",
+        "CREATE INDEX IF NOT EXISTS idx_recurring_start_date ON recurring_expenses(start_date)",
+        "ALTER TABLE recurring_expenses ADD COLUMN IF NOT EXISTS last_generated DATE",
+        "CREATE TABLE IF NOT EXISTS budgets ("
+            + "seq BIGINT GENERATED BY DEFAULT AS IDENTITY, "
+            + "id VARCHAR(64) PRIMARY KEY, "
+            + "category VARCHAR(255) NOT NULL, "
+            + "budget_amount DECIMAL(15, 2) NOT NULL, "
+            + "period VARCHAR(32) NOT NULL)",
+        "CREATE INDEX IF NOT EXISTS idx_budgets_category ON budgets(category)",
+        "CREATE TABLE IF NOT EXISTS metadata ("
+            + "meta_key VARCHAR(64) PRIMARY KEY, "
+            + "meta_value VARCHAR(255))"
+    };
+
+    private static final String MERGE_EXPENSE =
+        "MERGE INTO expenses (id, amount, category, expense_date, description) KEY (id) VALUES (?, ?, ?, ?, ?)";
+    private static final String MERGE_CATEGORY =
+        "MERGE INTO categories (id, user_id, name, color, icon) KEY (id) VALUES (?, ?, ?, ?, ?)";
+    private static final String MERGE_RECURRING_EXPENSE =
+        "MERGE INTO recurring_expenses (id, amount, category, start_date, frequency, description, last_generated) KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String MERGE_BUDGET =
+        "MERGE INTO budgets (id, category, budget_amount, period) KEY (id) VALUES (?, ?, ?, ?)";
+
+    // Rows fetched at a time while streaming expenses
+    private static final int EXPENSE_FETCH_SIZE = 1000;
+
+    private final Connection connection;
+
+    public H2FileManager() {
+        this(DEFAULT_URL);
+    }
+
+    public H2FileManager(String url) {
+        try {
+            this.connection = DriverManager.getConnection(url, "sa", "");
+            createSchema();
+            migrateFromCsv(new CsvFileManager());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not open H2 database at " + url, e);
+        }
+    }
+
+    private void createSchema() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String ddl : SCHEMA) {
+                statement.execute(ddl);
+            }
+        }
+    }
+
+    /**
+     * Copies the CSV files into the database the first time it is opened. The marker row is
+     * written in the same transaction, so an interrupted migration is simply retried.
+     */
+    private void migrateFromCsv(FileManager csv) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT meta_value FROM metadata WHERE meta_key = ?")) {
+            ps.setString(1, CSV_MIGRATED_KEY);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return;
+            }
+        }
+
+        LOGGER.info("Migrating CSV data into H2 database");
+        inTransaction(() -> {
+            replaceAll("expenses", MERGE_EXPENSE, csv.loadExpenses(), this::bindExpense);
+            replaceAll("categories", MERGE_CATEGORY, csv.loadCategories(), this::bindCategory);
+            replaceAll("recurring_expenses", MERGE_RECURRING_EXPENSE, csv.loadRecurringExpenses(), this::bindRecurringExpense);
+            replaceAll("budgets", MERGE_BUDGET, csv.loadBudgets(), this::bindBudget);
+            try (PreparedStatement ps = connection.prepareStatement("MERGE INTO metadata (meta_key, meta_value) KEY (meta_key) VALUES (?, ?)")) {
+                ps.setString(1, CSV_MIGRATED_KEY);
+                ps.setString(2, "true");
+                ps.executeUpdate();
+            }
+        });
+    }
+
+    // --- Expenses ---
+
+    @Override
+    public void saveExpenses(List<Expense> expenses) {
+        runLogged("save expenses", () -> inTransaction(() -> replaceAll("expenses", MERGE_EXPENSE, expenses, this::bindExpense)));
+    }
+
+    @Override
+    public ObservableList<Expense> loadExpenses() {
+        List<Expense> expenses = new ArrayList<>();
+        loadExpenses(expenses::add);
+        return FXCollections.observableList(expenses);
+    }
+
+    /** Passes each row to {@code sink} as it is read from the result set. */
+    @Override
+    public void loadExpenses(Consumer<? super Expense> sink) {
+        runLogged("load expenses", () -> {
+            try (Statement statement = connection.createStatement()) {
+                // H2 spools results over MAX_MEMORY_ROWS to a temporary file, so only a window of rows is on the heap
+                statement.setFetchSize(EXPENSE_FETCH_SIZE);
+                try (ResultSet rs = statement.executeQuery("SELECT id, amount, category, expense_date, description FROM expenses ORDER BY seq")) {
+                    while (rs.next()) {
+                        sink.accept(new Expense(
+                                rs.getString(1),
+                                rs.getBigDecimal(2).doubleValue(),
+                                rs.getString(3),
+                                rs.getDate(4).toLocalDate(),
+                                rs.getString(5)));
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public void insertExpense(Expense expense, List<Expense> expenses) {
+        runLogged("insert expense", () -> mergeOne(MERGE_EXPENSE, expense, this::bindExpense));
+    }
+
+    @Override
+    public void insertExpenses(List<Expense> added, List<Expense> expenses) {
+        runLogged("insert expenses", () -> inTransaction(() -> mergeAll(MERGE_EXPENSE, added, this::bindExpense)));
+    }
+
+    @Override
+    public void updateExpense(Expense expense, List<Expense> expenses) {
+        runLogged("update expense", () -> mergeOne(MERGE_EXPENSE, expense, this::bindExpense));
+    }
+
+    @Override
+    public void deleteExpense(Expense expense, List<Expense> expenses) {
+        runLogged("delete expense", () -> deleteById("expenses", expense.getId()));
+    }
+
+    // --- Categories ---
+
+    @Override
+    public void saveCategories(List<Category> categories) {
+        runLogged("save categories", () -> inTransaction(() -> replaceAll("categories", MERGE_CATEGORY, categories, this::bindCategory)));
+    }
+
+    @Override
+    public ObservableList<Category> loadCategories() {
+        ObservableList<Category> categories = FXCollections.observableArrayList();
+        runLogged("load categories", () -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT id, user_id, name, color, icon FROM categories ORDER BY seq")) {
+                while (rs.next()) {
+                    categories.add(new Category(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5)));
+                }
+            }
+        });
+        return categories;
+    }
+
+    @Override
+    public void insertCategory(Category category, List<Category> categories) {
+        runLogged("insert category", () -> mergeOne(MERGE_CATEGORY, category, this::bindCategory));
+    }
+
+    @Override
+    public void updateCategory(Category category, List<Category> categories) {
+        runLogged("update category", () -> mergeOne(MERGE_CATEGORY, category, this::bindCategory));
+    }
+
+    @Override
+    public void deleteCategory(Category category, List<Category> categories) {
+        runLogged("delete category", () -> deleteById("categories", category.getId()));
+    }
+
+    // --- Recurring expenses ---
+
+    @Override
+    public void saveRecurringExpenses(List<RecurringExpense> recurringExpenses) {
+        runLogged("save recurring expenses", () -> inTransaction(() ->
+                replaceAll("recurring_expenses", MERGE_RECURRING_EXPENSE, recurringExpenses, this::bindRecurringExpense)));
+    }
+
+    @Override
+    public ObservableList<RecurringExpense> loadRecurringExpenses() {
+        ObservableList<RecurringExpense> recurringExpenses = FXCollections.observableArrayList();
+        runLogged("load recurring expenses", () -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(
+                         "SELECT id, amount, category, start_date, frequency, description, last_generated FROM recurring_expenses ORDER BY seq")) {
+                while (rs.next()) {
+                    Date lastGenerated = rs.getDate(7);
+                    recurringExpenses.add(new RecurringExpense(
+                            rs.getString(1),
+                            rs.getBigDecimal(2).doubleValue(),
+                            rs.getString(3),
+                            rs.getDate(4).toLocalDate(),
+                            rs.getString(5),
+                            rs.getString(6),
+                            lastGenerated == null ? null : lastGenerated.toLocalDate()));
+                }
+            }
+        });
+        return recurringExpenses;
+    }
+
+    @Override
+    public void insertRecurringExpense(RecurringExpense recurringExpense, List<RecurringExpense> recurringExpenses) {
+        runLogged("insert recurring expense", () -> mergeOne(MERGE_RECURRING_EXPENSE, recurringExpense, this::bindRecurringExpense));
+    }
+
+    @Override
+    public void updateRecurringExpense(RecurringExpense recurringExpense, List<RecurringExpense> recurringExpenses) {
+        runLogged("update recurring expense", () -> mergeOne(MERGE_RECURRING_EXPENSE, recurringExpense, this::bindRecurringExpense));
+    }
+
+    @Override
+    public void updateRecurringExpenses(List<RecurringExpense> updated, List<RecurringExpense> recurringExpenses) {
+        runLogged("update recurring expenses", () -> inTransaction(() -> mergeAll(MERGE_RECURRING_EXPENSE, updated, this::bindRecurringExpense)));
+    }
+
+    @Override
+    public void deleteRecurringExpense(RecurringExpense recurringExpense, List<RecurringExpense> recurringExpenses) {
+        runLogged("delete recurring expense", () -> deleteById("recurring_expenses", recurringExpense.getId()));
+    }
+
+    // --- Budgets ---
+
+    @Override
+    public void saveBudgets(List<Budget> budgets) {
+        runLogged("save budgets", () -> inTransaction(() -> replaceAll("budgets", MERGE_BUDGET, budgets, this::bindBudget)));
+    }
+
+    @Override
+    public ObservableList<Budget> loadBudgets() {
+        ObservableList<Budget> budgets = FXCollections.observableArrayList();
+        runLogged("load budgets", () -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT id, category, budget_amount, period FROM budgets ORDER BY seq")) {
+                while (rs.next()) {
+                    budgets.add(new Budget(rs.getString(1), rs.getString(2), rs.getBigDecimal(3).doubleValue(), rs.getString(4)));
+                }
+            }
+        });
+        return budgets;
+    }
+
+    @Override
+    public void insertBudget(Budget budget, List<Budget> budgets) {
+        runLogged("insert budget", () -> mergeOne(MERGE_BUDGET, budget, this::bindBudget));
+    }
+
+    @Override
+    public void updateBudget(Budget budget, List<Budget> budgets) {
+        runLogged("update budget", () -> mergeOne(MERGE_BUDGET, budget, this::bindBudget));
+    }
+
+    @Override
+    public void deleteBudget(Budget budget, List<Budget> budgets) {
+        runLogged("delete budget", () -> deleteById("budgets", budget.getId()));
+    }
+
+    @Override
+    public boolean supportsRowLevelWrites() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Could not close H2 connection", e);
+        }
+    }
+
+    // --- Statement binding ---
+
+    private void bindExpense(PreparedStatement ps, Expense expense) throws SQLException {
+        ps.setString(1, expense.getId());
+        ps.setBigDecimal(2, money(expense.getAmount()));
+        ps.setString(3, expense.getCategory());
+        ps.setDate(4, Date.valueOf(expense.getDate()));
+        ps.setString(5, expense.getDescription() == null ? "" : expense.getDescription());
+    }
+
+    private void bindCategory(PreparedStatement ps, Category category) throws SQLException {
+        ps.setString(1, category.getId());
+        ps.setString(2, category.getUserId());
+        ps.setString(3, category.getName());
+        ps.setString(4, category.getColor());
+        ps.setString(5, category.getIcon());
+    }
+
+    private void bindRecurringExpense(PreparedStatement ps, RecurringExpense recurringExpense) throws SQLException {
+        ps.setString(1, recurringExpense.getId());
+        ps.setBigDecimal(2, money(recurringExpense.getAmount()));
+        ps.setString(3, recurringExpense.getCategory());
+        ps.setDate(4, Date.valueOf(recurringExpense.getStartDate()));
+        ps.setString(5, recurringExpense.getFrequency());
+        ps.setString(6, recurringExpense.getDescription() == null ? "" : recurringExpense.getDescription());
+        ps.setDate(7, recurringExpense.getLastGenerated() == null ? null : Date.valueOf(recurringExpense.getLastGenerated()));
+    }
+
+    private void bindBudget(PreparedStatement ps, Budget budget) throws SQLException {
+        ps.setString(1, budget.getId());
+        ps.setString(2, budget.getCategory());
+        ps.setBigDecimal(3, money(budget.getBudgetAmount()));
+        ps.setString(4, budget.getPeriod());
+    }
+
+    private static BigDecimal money(double amount) {
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    // --- Helpers ---
+
+    private <T> void mergeOne(String sql, T record, Binder<T> binder) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            binder.bind(ps, record);
+            ps.executeUpdate();
+        }
+    }
+
+    private void deleteById(String table, String id) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("DELETE FROM " + table + " WHERE id = ?")) {
+            ps.setString(1, id);
+            ps.executeUpdate();
+        }
+    }
+
+    private <T> void replaceAll(String table, String mergeSql, List<T> records, Binder<T> binder) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM " + table);
+        }
+        mergeAll(mergeSql, records, binder);
+    }
+
+    private <T> void mergeAll(String mergeSql, List<T> records, Binder<T> binder) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(mergeSql)) {
+            int batched = 0;
+            for (T record : records) {
+                binder.bind(ps, record);
+                ps.addBatch();
+                if (++batched % 1000 == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private void inTransaction(SqlAction action) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            action.run();
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private void runLogged(String operation, SqlAction action) {
+        try {
+            action.run();
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "H2 storage failed to " + operation, e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlAction {
+        void run() throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface Binder<T> {
+        void bind(PreparedStatement ps, T record) throws SQLException;
+    }
+}
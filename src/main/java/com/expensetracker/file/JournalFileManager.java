@@ -0,0 +1,375 @@
+package com.expensetracker.file;
+
+import com.expensetracker.model.Budget;
+import com.expensetracker.model.Category;
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.RecurringExpense;
+import com.expensetracker.store.ExpenseList;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stores expenses as a base snapshot plus an append-only journal of add/update/delete records.
+ * Each mutation appends one line instead of rewriting the whole file; once the journal grows past
+ * the compaction threshold it is folded into a fresh snapshot on a background thread.
+ * Categories, recurring expenses and budgets are small and are passed straight to the snapshot store.
+ */
+public class JournalFileManager implements FileManager {
+    private static final Logger LOGGER = Logger.getLogger(JournalFileManager.class.getName());
+
+    private static final String JOURNAL_FILE = "expenses.journal";
+    private static final String COMPACTING_SUFFIX = ".compacting";
+
+    private static final String OP_ADD = "A";
+    private static final String OP_UPDATE = "U";
+    private static final String OP_DELETE = "D";
+
+    // op,id,amount,category,date,description - no header, one record per mutation
+    private static final CSVFormat JOURNAL_FORMAT = CSVFormat.DEFAULT;
+
+    private final FileManager snapshotStore;
+    private final Path journalPath;
+    private final Path compactingPath;
+    private final int compactThreshold;
+    private final ExecutorService compactor;
+
+    private CSVPrinter journal;
+    private int journalEntries;
+    private Future<?> pendingCompaction;
+
+    public JournalFileManager(FileManager snapshotStore, int compactThreshold) {
+        this(snapshotStore, Paths.get(JOURNAL_FILE), compactThreshold);
+    }
+
+    public JournalFileManager(FileManager snapshotStore, Path journalPath, int compactThreshold) {
+        this.snapshotStore = snapshotStore;
+        this.journalPath = journalPath;
+        this.compactingPath = Paths.get(journalPath.toString() + COMPACTING_SUFFIX);
+        this.compactThreshold = Math.max(1, compactThreshold);
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "journal-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public ObservableList<Expense> loadExpenses() {
+        List<Expense> expenses = new ArrayList<>();
+        loadExpenses(expenses::add);
+        return FXCollections.observableList(expenses);
+    }
+
+    /**
+     * Replays the journals into a map of changes by id, then streams the snapshot through it, so
+     * only the journalled records are held on the heap. Changed records keep their snapshot
+     * position; records the journal added follow the snapshot in journal order.
+     */
+    @Override
+    public void loadExpenses(Consumer<? super Expense> sink) {
+        // The latest journal record per id; null for a delete
+        Map<String, Expense> changes = new LinkedHashMap<>();
+
+        // A leftover compacting journal means the last compaction did not finish; replay it first
+        boolean interruptedCompaction = Files.exists(compactingPath);
+        if (interruptedCompaction) {
+            replay(compactingPath, changes);
+        }
+        journalEntries = replay(journalPath, changes);
+
+        // Only kept when everything has to be folded into a fresh snapshot
+        List<Expense> folded = interruptedCompaction ? new ArrayList<>() : null;
+        Consumer<Expense> out = folded == null ? sink::accept : expense -> {
+            folded.add(expense);
+            sink.accept(expense);
+        };
+        snapshotStore.loadExpenses(expense -> {
+            if (!changes.containsKey(expense.getId())) {
+                out.accept(expense);
+                return;
+            }
+            Expense changed = changes.remove(expense.getId());
+            if (changed != null) {
+                out.accept(changed);
+            }
+        });
+        for (Expense added : changes.values()) {
+            if (added != null) {
+                out.accept(added);
+            }
+        }
+
+        if (interruptedCompaction) {
+            // Fold everything into a fresh snapshot before accepting new mutations
+            saveExpenses(folded);
+        }
+    }
+
+    /**
+     * Writes a full snapshot and then clears the journals. If the snapshot cannot be written the
+     * journals are kept, so the next load still replays every recorded change.
+     */
+    @Override
+    public void saveExpenses(List<Expense> expenses) {
+        awaitCompaction();
+        try {
+            snapshotStore.saveExpensesChecked(expenses);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Could not write expense snapshot, keeping the journal", e);
+            return;
+        }
+        try {
+            closeJournal();
+            Files.deleteIfExists(journalPath);
+            Files.deleteIfExists(compactingPath);
+            journalEntries = 0;
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Could not reset expense journal after full save", e);
+        }
+    }
+
+    @Override
+    public void insertExpense(Expense expense, List<Expense> expenses) {
+        append(OP_ADD, expense, expenses);
+    }
+
+    @Override
+    public void insertExpenses(List<Expense> added, List<Expense> expenses) {
+        try {
+            CSVPrinter printer = openJournal();
+            for (Expense expense : added) {
+                printRecord(printer, OP_ADD, expense);
+            }
+            printer.flush();
+            journalEntries += added.size();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Could not append to expense journal, writing full snapshot instead", e);
+            saveExpenses(copyOf(expenses));
+            return;
+        }
+
+        if (journalEntries >= compactThreshold) {
+            compact(expenses);
+        }
+    }
+
+    @Override
+    public void updateExpense(Expense expense, List<Expense> expenses) {
+        append(OP_UPDATE, expense, expenses);
+    }
+
+    @Override
+    public void deleteExpense(Expense expense, List<Expense> expenses) {
+        append(OP_DELETE, expense, expenses);
+    }
+
+    private void append(String op, Expense expense, List<Expense> expenses) {
+        try {
+            CSVPrinter printer = openJournal();
+            printRecord(printer, op, expense);
+            printer.flush();
+            journalEntries++;
+        } catch (IOException e) {
+            // The journal is unusable; fall back to a full snapshot so the change is not lost
+            LOGGER.log(Level.SEVERE, "Could not append to expense journal, writing full snapshot instead", e);
+            saveExpenses(copyOf(expenses));
+            return;
+        }
+
+        if (journalEntries >= compactThreshold) {
+            compact(expenses);
+        }
+    }
+
+    private static void printRecord(CSVPrinter printer, String op, Expense expense) throws IOException {
+        if (OP_DELETE.equals(op)) {
+            printer.printRecord(op, expense.getId());
+        } else {
+            printer.printRecord(
+                    op,
+                    expense.getId(),
+                    String.format("%.2f", expense.getAmount()),
+                    expense.getCategory(),
+                    expense.getDate().toString(),
+                    expense.getDescription() == null ? "" : expense.getDescription()
+            );
+        }
+    }
+
+    /**
+     * Rotates the current journal aside and writes a new snapshot in the background. New mutations
+     * go to a fresh journal in the meantime, so the caller never waits for the snapshot write.
+     * The rotated journal is only deleted once the snapshot is written; after a failed compaction
+     * it stays behind and the next rotation appends to it, so a load replays it.
+     */
+    private void compact(List<Expense> expenses) {
+        if (pendingCompaction != null && !pendingCompaction.isDone()) {
+            return; // Previous compaction still running; try again after the next mutation
+        }
+        List<Expense> snapshot = copyOf(expenses);
+        try {
+            closeJournal();
+            if (Files.exists(compactingPath)) {
+                // Left by a failed compaction; replaying a record twice gives the same result
+                try (OutputStream out = Files.newOutputStream(compactingPath, StandardOpenOption.APPEND)) {
+                    Files.copy(journalPath, out);
+                }
+                Files.delete(journalPath);
+            } else {
+                Files.move(journalPath, compactingPath, StandardCopyOption.ATOMIC_MOVE);
+            }
+            journalEntries = 0;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not rotate expense journal for compaction", e);
+            return;
+        }
+        pendingCompaction = compactor.submit(() -> {
+            try {
+                snapshotStore.saveExpensesChecked(snapshot);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Journal compaction failed, keeping " + compactingPath, e);
+                return;
+            }
+            try {
+                Files.deleteIfExists(compactingPath);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not remove compacted journal " + compactingPath, e);
+            }
+        });
+    }
+
+    // The store-backed list may be passed from another thread's write-behind queue; only its snapshot is safe there
+    private static List<Expense> copyOf(List<Expense> expenses) {
+        return expenses instanceof ExpenseList ? ((ExpenseList) expenses).snapshot() : new ArrayList<>(expenses);
+    }
+
+    private int replay(Path path, Map<String, Expense> changes) {
+        if (!Files.exists(path)) return 0;
+
+        int entries = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+             CSVParser parser = new CSVParser(reader, JOURNAL_FORMAT)) {
+            for (CSVRecord record : parser) {
+                try {
+                    String op = record.get(0);
+                    String id = record.get(1);
+                    if (OP_DELETE.equals(op)) {
+                        changes.put(id, null);
+                    } else {
+                        double amount = Double.parseDouble(record.get(2));
+                        String category = record.get(3);
+                        LocalDate date = LocalDate.parse(record.get(4));
+                        String description = record.size() > 5 ? record.get(5) : "";
+                        changes.put(id, new Expense(id, amount, category, date, description));
+                    }
+                    entries++;
+                } catch (Exception ex) {
+                    // A torn trailing record after a crash is expected; skip it and keep replaying
+                    LOGGER.log(Level.WARNING, "Skipping malformed journal record " + record.getRecordNumber() + " in " + path, ex);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Could not replay expense journal " + path, e);
+        }
+        return entries;
+    }
+
+    private CSVPrinter openJournal() throws IOException {
+        if (journal == null) {
+            journal = new CSVPrinter(Files.newBufferedWriter(journalPath, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND), JOURNAL_FORMAT);
+        }
+        return journal;
+    }
+
+    private void closeJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    private void awaitCompaction() {
+        if (pendingCompaction == null) return;
+        try {
+            pendingCompaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.SEVERE, "Journal compaction failed", e.getCause());
+        }
+    }
+
+    @Override
+    public boolean supportsRowLevelWrites() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        awaitCompaction();
+        compactor.shutdown();
+        try {
+            closeJournal();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not close expense journal", e);
+        }
+        snapshotStore.close();
+    }
+
+    @Override
+    public void saveCategories(List<Category> categories) {
+        snapshotStore.saveCategories(categories);
+    }
+
+    @Override
+    public ObservableList<Category> loadCategories() {
+        return snapshotStore.loadCategories();
+    }
+
+    @Override
+    public void saveRecurringExpenses(List<RecurringExpense> recurringExpenses) {
+        snapshotStore.saveRecurringExpenses(recurringExpenses);
+    }
+
+    @Override
+    public ObservableList<RecurringExpense> loadRecurringExpenses() {
+        return snapshotStore.loadRecurringExpenses();
+    }
+
+    @Override
+    public void saveBudgets(List<Budget> budgets) {
+        snapshotStore.saveBudgets(budgets);
+    }
+
+    @Override
+    public ObservableList<Budget> loadBudgets() {
+        return snapshotStore.loadBudgets();
+    }
+}
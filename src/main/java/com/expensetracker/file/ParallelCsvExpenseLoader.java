@@ -0,0 +1,534 @@
+package com.expensetracker.file;
+
+import com.expensetracker.model.Expense;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fast path for loading expenses.csv. The file is read into a heap buffer a window at a time. Each
+ * window is split into chunks at record boundaries (quote-aware, so quoted newlines never split a
+ * record) and the chunks are parsed in parallel on the common fork/join pool by a tokenizer
+ * specialised for the id,amount,category,date,description layout. Results are concatenated in
+ * file order.
+ * <p>
+ * The file is read rather than memory-mapped: a mapping stays open until the buffer is garbage
+ * collected, and on Windows an open mapping makes the atomic replace of expenses.csv on the next
+ * save fail. Only the channel is open while loading, and it is closed before {@link #load} returns.
+ * <p>
+ * {@link #load(Path)} returns {@code null} whenever the file does not look exactly like what
+ * {@link CsvFileManager} writes, so the caller can fall back to Commons CSV.
+ * {@link #load(Path, Consumer)} streams the expenses instead and tells the caller where to resume.
+ */
+final class ParallelCsvExpenseLoader {
+    private static final Logger LOGGER = Logger.getLogger(ParallelCsvExpenseLoader.class.getName());
+
+    private static final byte[] HEADER = "id,amount,category,date,description".getBytes(StandardCharsets.US_ASCII);
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+    private static final int CHUNKS_PER_WORKER = 4;
+    // Bytes read per window; grown only for a record longer than a whole window
+    private static final int WINDOW_BYTES = 64 << 20;
+    private static final int MAX_WINDOW_BYTES = 1 << 30;
+
+    private static final byte QUOTE = '"';
+    private static final byte COMMA = ',';
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+
+    private ParallelCsvExpenseLoader() {
+    }
+
+    /**
+     * Loads all expenses from the given file, or returns {@code null} if the file uses a dialect
+     * this loader does not handle (different header, stray quotes).
+     */
+    static List<Expense> load(Path path) throws IOException {
+        List<Expense> expenses = new ArrayList<>();
+        return read(path, expenses::addAll) == -1 ? expenses : null;
+    }
+
+    /**
+     * Passes the expenses in the given file to {@code sink} in file order, holding only one window
+     * of them at a time. Returns -1 once the whole file is read, or else the byte offset, at a
+     * record boundary, from which the rest of the file needs the general parser; every record
+     * before it has been passed to the sink.
+     */
+    static long load(Path path, Consumer<? super Expense> sink) throws IOException {
+        return read(path, chunk -> chunk.forEach(sink));
+    }
+
+    /**
+     * Reads the file window by window and passes each window's expenses to {@code sink}, in file
+     * order. Returns -1 once the whole file is read. If a window turns out to use a dialect this
+     * loader does not handle, returns the file offset where that window starts: a record boundary,
+     * with every record before it already passed to the sink. 0 means nothing was passed.
+     */
+    private static long read(Path path, Consumer<List<Expense>> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            byte[] data = new byte[(int) Math.min(channel.size() + 1, WINDOW_BYTES)];
+            // File offset of data[0], and how much of data holds file contents
+            long position = 0;
+            int length = 0;
+            boolean eof = false;
+            while (true) {
+                while (length < data.length && !eof) {
+                    int n = channel.read(ByteBuffer.wrap(data, length, data.length - length), position + length);
+                    if (n < 0) {
+                        eof = true;
+                    } else {
+                        length += n;
+                    }
+                }
+                int start;
+                int[] bounds;
+                try {
+                    start = position == 0 ? skipHeader(data, length) : 0;
+                    bounds = chunkBoundaries(data, start, length, eof);
+                } catch (UnsupportedDialectException e) {
+                    LOGGER.log(Level.FINE, "Falling back to Commons CSV for " + path + ": " + e.getMessage());
+                    return position;
+                }
+                if (bounds == null) {
+                    // Not even one whole record in a full window
+                    if (data.length >= MAX_WINDOW_BYTES) {
+                        throw new IOException("Record at byte " + position + " of " + path + " is longer than " + MAX_WINDOW_BYTES + " bytes");
+                    }
+                    data = Arrays.copyOf(data, data.length * 2);
+                    continue;
+                }
+                List<Expense>[] results;
+                try {
+                    results = parse(data, bounds);
+                } catch (UnsupportedDialectException e) {
+                    LOGGER.log(Level.FINE, "Falling back to Commons CSV for " + path + " from byte " + position + ": " + e.getMessage());
+                    return position;
+                }
+                for (List<Expense> chunk : results) {
+                    sink.accept(chunk);
+                }
+                // Carry the incomplete last record over to the next window
+                int end = bounds[bounds.length - 1];
+                System.arraycopy(data, end, data, 0, length - end);
+                position += end;
+                length -= end;
+                if (eof && length == 0) return -1;
+            }
+        }
+    }
+
+    private static List<Expense>[] parse(byte[] data, int[] bounds) {
+        int chunkCount = bounds.length - 1;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<Expense>[] results = new List[chunkCount];
+        if (chunkCount == 1) {
+            results[0] = new ChunkParser(data, bounds[0], bounds[1]).parse();
+        } else {
+            ForkJoinPool.commonPool().invoke(new ParseTask(data, bounds, results, 0, chunkCount));
+        }
+        return results;
+    }
+
+    private static int skipHeader(byte[] data, int size) {
+        int pos = 0;
+        // Tolerate a UTF-8 byte order mark
+        if (size >= 3 && (data[0] & 0xFF) == 0xEF && (data[1] & 0xFF) == 0xBB && (data[2] & 0xFF) == 0xBF) {
+            pos = 3;
+        }
+        for (byte expected : HEADER) {
+            if (pos >= size || data[pos] != expected) {
+                throw new UnsupportedDialectException("unexpected header");
+            }
+            pos++;
+        }
+        if (pos < size && data[pos] == CR) pos++;
+        if (pos < size) {
+            if (data[pos] != LF) throw new UnsupportedDialectException("unexpected header");
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Splits [start, end), which starts at a record boundary, into record-aligned chunks. Quote
+     * characters are counted per raw chunk in parallel; the running parity tells each split point
+     * whether it starts inside a quoted field, so it can advance to the first newline that really
+     * ends a record. Unless {@code last} says the window ends the file, the chunks stop at the end
+     * of the last whole record, and null is returned if there is none.
+     */
+    private static int[] chunkBoundaries(byte[] data, int start, int end, boolean last) {
+        int workers = ForkJoinPool.getCommonPoolParallelism();
+        int chunkCount = (int) Math.max(1, Math.min((long) workers * CHUNKS_PER_WORKER, (end - start) / MIN_CHUNK_BYTES));
+
+        long rawSize = (long) (end - start) / chunkCount;
+        int[] rawStarts = new int[chunkCount + 1];
+        for (int i = 0; i < chunkCount; i++) rawStarts[i] = (int) (start + rawSize * i);
+        rawStarts[chunkCount] = end;
+
+        int[] quoteCounts = chunkCount == 1 ? new int[] {countQuotes(data, start, end)}
+                : java.util.stream.IntStream.range(0, chunkCount).parallel()
+                        .map(i -> countQuotes(data, rawStarts[i], rawStarts[i + 1]))
+                        .toArray();
+        // Whether each raw chunk starts inside a quoted field
+        boolean[] startsQuoted = new boolean[chunkCount];
+        for (int i = 1; i < chunkCount; i++) {
+            startsQuoted[i] = startsQuoted[i - 1] ^ (quoteCounts[i - 1] & 1) == 1;
+        }
+
+        int recordsEnd = end;
+        if (!last) {
+            recordsEnd = -1;
+            for (int i = chunkCount - 1; i >= 0 && recordsEnd < 0; i--) {
+                recordsEnd = lastRecordEnd(data, rawStarts[i], rawStarts[i + 1], startsQuoted[i]);
+            }
+            if (recordsEnd < 0) return null;
+        }
+
+        int[] bounds = new int[chunkCount + 1];
+        bounds[0] = start;
+        bounds[chunkCount] = recordsEnd;
+        for (int i = 1; i < chunkCount; i++) {
+            int pos = rawStarts[i];
+            boolean quoted = startsQuoted[i];
+            while (pos < recordsEnd) {
+                byte b = data[pos++];
+                if (b == QUOTE) {
+                    quoted = !quoted;
+                } else if (b == LF && !quoted) {
+                    break;
+                }
+            }
+            bounds[i] = Math.min(Math.max(pos, bounds[i - 1]), recordsEnd);
+        }
+        return bounds;
+    }
+
+    /** Position just after the last newline in [from, to) that ends a record, or -1 if there is none. */
+    private static int lastRecordEnd(byte[] data, int from, int to, boolean quoted) {
+        int recordEnd = -1;
+        for (int i = from; i < to; i++) {
+            byte b = data[i];
+            if (b == QUOTE) {
+                quoted = !quoted;
+            } else if (b == LF && !quoted) {
+                recordEnd = i + 1;
+            }
+        }
+        return recordEnd;
+    }
+
+    private static int countQuotes(byte[] data, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (data[i] == QUOTE) count++;
+        }
+        return count;
+    }
+
+    private static final class ParseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] data;
+        private final int[] bounds;
+        private final List<Expense>[] results;
+        private final int from;
+        private final int to;
+
+        ParseTask(byte[] data, int[] bounds, List<Expense>[] results, int from, int to) {
+            this.data = data;
+            this.bounds = bounds;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                results[from] = new ChunkParser(data, bounds[from], bounds[from + 1]).parse();
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ParseTask(data, bounds, results, from, mid),
+                      new ParseTask(data, bounds, results, mid, to));
+        }
+    }
+
+    /**
+     * Tokenizes one chunk. Fields are read straight from the window; only the id,
+     * description and first occurrence of each category name become Strings.
+     */
+    private static final class ChunkParser {
+        private final byte[] data;
+        private final int end;
+        private final CategoryCache categories = new CategoryCache();
+        private byte[] scratch = new byte[256];
+        private int pos;
+
+        // Field bounds of the current unquoted field, or scratch length for quoted ones
+        private int fieldStart;
+        private int fieldLength;
+        private boolean fieldQuoted;
+
+        ChunkParser(byte[] data, int start, int end) {
+            this.data = data;
+            this.pos = start;
+            this.end = end;
+        }
+
+        List<Expense> parse() {
+            List<Expense> expenses = new ArrayList<>(Math.max(16, (end - pos) / 64));
+            while (pos < end) {
+                if (atLineEnd()) {
+                    skipLineEnd(); // Blank line
+                    continue;
+                }
+                int recordStart = pos;
+                try {
+                    expenses.add(readRecord());
+                } catch (UnsupportedDialectException e) {
+                    throw e;
+                } catch (RuntimeException ex) {
+                    // Skip malformed record but continue parsing others
+                    LOGGER.log(Level.WARNING, "Skipping malformed expense record at byte " + recordStart, ex);
+                    skipToRecordEnd();
+                }
+            }
+            return expenses;
+        }
+
+        private Expense readRecord() {
+            readField();
+            String id = fieldString();
+            expectSeparator();
+
+            readField();
+            double amount = fieldAmount();
+            expectSeparator();
+
+            readField();
+            String category = fieldQuoted ? fieldString() : categories.get(data, fieldStart, fieldLength);
+            expectSeparator();
+
+            readField();
+            LocalDate date = fieldDate();
+
+            String description = "";
+            if (!atRecordEnd()) {
+                expectSeparator();
+                readField();
+                description = fieldString();
+                // Ignore any extra trailing columns
+                while (!atRecordEnd()) {
+                    expectSeparator();
+                    readField();
+                }
+            }
+            skipLineEnd();
+            return new Expense(id, amount, category, date, description);
+        }
+
+        private void readField() {
+            if (pos < end && data[pos] == QUOTE) {
+                readQuotedField();
+                return;
+            }
+            fieldQuoted = false;
+            fieldStart = pos;
+            while (pos < end) {
+                byte b = data[pos];
+                if (b == COMMA || b == LF || b == CR) break;
+                if (b == QUOTE) throw new UnsupportedDialectException("quote inside unquoted field");
+                pos++;
+            }
+            fieldLength = pos - fieldStart;
+        }
+
+        private void readQuotedField() {
+            fieldQuoted = true;
+            pos++; // Opening quote
+            int length = 0;
+            while (true) {
+                if (pos >= end) throw new IllegalStateException("unterminated quoted field");
+                byte b = data[pos++];
+                if (b == QUOTE) {
+                    if (pos < end && data[pos] == QUOTE) {
+                        pos++; // Escaped quote
+                    } else {
+                        break;
+                    }
+                }
+                if (length == scratch.length) scratch = Arrays.copyOf(scratch, length * 2);
+                scratch[length++] = b;
+            }
+            fieldLength = length;
+            if (!atRecordEnd() && data[pos] != COMMA) {
+                throw new UnsupportedDialectException("text after closing quote");
+            }
+        }
+
+        private String fieldString() {
+            if (fieldQuoted) {
+                return new String(scratch, 0, fieldLength, StandardCharsets.UTF_8);
+            }
+            return new String(data, fieldStart, fieldLength, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Parses plain decimals such as 120.00 or -3.5 without building a String. The mantissa
+         * and divisor are both exact doubles, so the division gives the same correctly rounded
+         * result as Double.parseDouble; anything else is handed to Double.parseDouble.
+         */
+        private double fieldAmount() {
+            if (fieldQuoted || fieldLength == 0 || fieldLength > 19) {
+                return Double.parseDouble(fieldString());
+            }
+            int i = fieldStart;
+            int limit = fieldStart + fieldLength;
+            boolean negative = data[i] == '-';
+            if (negative) i++;
+            long mantissa = 0;
+            int digits = 0;
+            int scale = -1;
+            for (; i < limit; i++) {
+                byte b = data[i];
+                if (b >= '0' && b <= '9') {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                    if (scale >= 0) scale++;
+                } else if (b == '.' && scale < 0) {
+                    scale = 0;
+                } else {
+                    return Double.parseDouble(fieldString());
+                }
+            }
+            if (digits == 0 || digits > 15) return Double.parseDouble(fieldString());
+            double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+            return negative ? -value : value;
+        }
+
+        private LocalDate fieldDate() {
+            if (fieldQuoted || fieldLength != 10
+                    || data[fieldStart + 4] != '-' || data[fieldStart + 7] != '-') {
+                return LocalDate.parse(fieldString().trim());
+            }
+            int year = digits(fieldStart, 4);
+            int month = digits(fieldStart + 5, 2);
+            int day = digits(fieldStart + 8, 2);
+            if (year < 0 || month < 0 || day < 0) {
+                return LocalDate.parse(fieldString());
+            }
+            return LocalDate.of(year, month, day);
+        }
+
+        private int digits(int from, int count) {
+            int value = 0;
+            for (int i = from; i < from + count; i++) {
+                int d = data[i] - '0';
+                if (d < 0 || d > 9) return -1;
+                value = value * 10 + d;
+            }
+            return value;
+        }
+
+        private void expectSeparator() {
+            if (pos >= end || data[pos] != COMMA) {
+                throw new IllegalStateException("missing column");
+            }
+            pos++;
+        }
+
+        private boolean atRecordEnd() {
+            return pos >= end || atLineEnd();
+        }
+
+        private boolean atLineEnd() {
+            byte b = data[pos];
+            return b == LF || b == CR;
+        }
+
+        private void skipLineEnd() {
+            if (pos < end && data[pos] == CR) pos++;
+            if (pos < end && data[pos] == LF) pos++;
+        }
+
+        private void skipToRecordEnd() {
+            boolean quoted = false;
+            while (pos < end) {
+                byte b = data[pos++];
+                if (b == QUOTE) {
+                    quoted = !quoted;
+                } else if (b == LF && !quoted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Interns category names per chunk so that a million rows share a handful of Strings and the
+     * common case allocates nothing.
+     */
+    private static final class CategoryCache {
+        private byte[][] keys = new byte[64][];
+        private String[] values = new String[64];
+        private int size;
+
+        String get(byte[] data, int start, int length) {
+            int hash = 1;
+            for (int i = start; i < start + length; i++) hash = 31 * hash + data[i];
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+            while (keys[slot] != null) {
+                if (Arrays.equals(keys[slot], 0, keys[slot].length, data, start, start + length)) return values[slot];
+                slot = (slot + 1) & mask;
+            }
+            byte[] key = Arrays.copyOfRange(data, start, start + length);
+            String value = new String(key, StandardCharsets.UTF_8);
+            keys[slot] = key;
+            values[slot] = value;
+            if (++size * 2 > keys.length) rehash();
+            return value;
+        }
+
+        private void rehash() {
+            byte[][] oldKeys = keys;
+            String[] oldValues = values;
+            keys = new byte[oldKeys.length * 2][];
+            values = new String[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == null) continue;
+                int slot = Arrays.hashCode(oldKeys[i]) & mask;
+                while (keys[slot] != null) slot = (slot + 1) & mask;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static final class UnsupportedDialectException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedDialectException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
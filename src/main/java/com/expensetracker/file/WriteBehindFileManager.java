@@ -0,0 +1,349 @@
+package com.expensetracker.file;
+
+import com.expensetracker.model.Budget;
+import com.expensetracker.model.Category;
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.RecurringExpense;
+import com.expensetracker.store.ExpenseList;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Wraps another {@link FileManager} and performs its writes on a dedicated background thread.
+ * Mutations are recorded and coalesced: a full save supersedes everything queued before it, and a
+ * burst of row-level changes is written in one flush. A flush runs once the oldest pending change
+ * is {@code flushDelayMillis} old, or immediately once {@code maxDirty} changes are waiting.
+ * {@link #close()} always performs a final flush.
+ * <p>
+ * Row changes are queued as they are; the full list is only copied for a flush that writes it,
+ * i.e. one with a full save queued or a delegate without row-level writes. The store-backed expense
+ * list is copied then, on the writer thread, as a {@linkplain ExpenseList#snapshot column snapshot}.
+ * The category, budget and recurring expense lists hold a handful of records and may only be read
+ * on the caller's thread, so they are still copied with each change.
+ */
+public class WriteBehindFileManager implements FileManager {
+    private static final Logger LOGGER = Logger.getLogger(WriteBehindFileManager.class.getName());
+
+    private final FileManager delegate;
+    private final long flushDelayMillis;
+    private final int maxDirty;
+    private final ScheduledExecutorService writer;
+    private final List<IntConsumer> pendingWritesListeners = new CopyOnWriteArrayList<>();
+
+    private final Object lock = new Object();
+    private Pending<Expense> expenses = new Pending<>(FileManager::saveExpenses);
+    private Pending<Category> categories = new Pending<>(FileManager::saveCategories);
+    private Pending<RecurringExpense> recurringExpenses = new Pending<>(FileManager::saveRecurringExpenses);
+    private Pending<Budget> budgets = new Pending<>(FileManager::saveBudgets);
+    private int pendingWrites;
+    private ScheduledFuture<?> scheduledFlush;
+
+    public WriteBehindFileManager(FileManager delegate, long flushDelayMillis, int maxDirty) {
+        this.delegate = delegate;
+        this.flushDelayMillis = Math.max(0, flushDelayMillis);
+        this.maxDirty = Math.max(1, maxDirty);
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Number of changes accepted but not yet handed to the underlying storage. */
+    public int getPendingWrites() {
+        synchronized (lock) {
+            return pendingWrites;
+        }
+    }
+
+    /** Called with the new pending count whenever it changes, on whichever thread changed it. */
+    public void addPendingWritesListener(IntConsumer listener) {
+        pendingWritesListeners.add(listener);
+    }
+
+    // --- Expenses ---
+
+    @Override
+    public void saveExpenses(List<Expense> list) {
+        record(() -> expenses.saveAll(list));
+    }
+
+    @Override
+    public void insertExpense(Expense expense, List<Expense> list) {
+        record(() -> expenses.row((fm, all) -> fm.insertExpense(expense, all), list));
+    }
+
+    @Override
+    public void insertExpenses(List<Expense> added, List<Expense> list) {
+        List<Expense> batch = new ArrayList<>(added);
+        record(() -> expenses.row((fm, all) -> fm.insertExpenses(batch, all), list));
+    }
+
+    @Override
+    public void updateExpense(Expense expense, List<Expense> list) {
+        record(() -> expenses.row((fm, all) -> fm.updateExpense(expense, all), list));
+    }
+
+    @Override
+    public void deleteExpense(Expense expense, List<Expense> list) {
+        record(() -> expenses.row((fm, all) -> fm.deleteExpense(expense, all), list));
+    }
+
+    @Override
+    public ObservableList<Expense> loadExpenses() {
+        flush();
+        return delegate.loadExpenses();
+    }
+
+    @Override
+    public void loadExpenses(Consumer<? super Expense> sink) {
+        flush();
+        delegate.loadExpenses(sink);
+    }
+
+    // --- Categories ---
+
+    @Override
+    public void saveCategories(List<Category> list) {
+        record(() -> categories.saveAll(list));
+    }
+
+    @Override
+    public void insertCategory(Category category, List<Category> list) {
+        record(() -> categories.row((fm, all) -> fm.insertCategory(category, all), list));
+    }
+
+    @Override
+    public void updateCategory(Category category, List<Category> list) {
+        record(() -> categories.row((fm, all) -> fm.updateCategory(category, all), list));
+    }
+
+    @Override
+    public void deleteCategory(Category category, List<Category> list) {
+        record(() -> categories.row((fm, all) -> fm.deleteCategory(category, all), list));
+    }
+
+    @Override
+    public ObservableList<Category> loadCategories() {
+        flush();
+        return delegate.loadCategories();
+    }
+
+    // --- Recurring expenses ---
+
+    @Override
+    public void saveRecurringExpenses(List<RecurringExpense> list) {
+        record(() -> recurringExpenses.saveAll(list));
+    }
+
+    @Override
+    public void insertRecurringExpense(RecurringExpense recurringExpense, List<RecurringExpense> list) {
+        record(() -> recurringExpenses.row((fm, all) -> fm.insertRecurringExpense(recurringExpense, all), list));
+    }
+
+    @Override
+    public void updateRecurringExpense(RecurringExpense recurringExpense, List<RecurringExpense> list) {
+        record(() -> recurringExpenses.row((fm, all) -> fm.updateRecurringExpense(recurringExpense, all), list));
+    }
+
+    @Override
+    public void updateRecurringExpenses(List<RecurringExpense> updated, List<RecurringExpense> list) {
+        List<RecurringExpense> batch = new ArrayList<>(updated);
+        record(() -> recurringExpenses.row((fm, all) -> fm.updateRecurringExpenses(batch, all), list));
+    }
+
+    @Override
+    public void deleteRecurringExpense(RecurringExpense recurringExpense, List<RecurringExpense> list) {
+        record(() -> recurringExpenses.row((fm, all) -> fm.deleteRecurringExpense(recurringExpense, all), list));
+    }
+
+    @Override
+    public ObservableList<RecurringExpense> loadRecurringExpenses() {
+        flush();
+        return delegate.loadRecurringExpenses();
+    }
+
+    // --- Budgets ---
+
+    @Override
+    public void saveBudgets(List<Budget> list) {
+        record(() -> budgets.saveAll(list));
+    }
+
+    @Override
+    public void insertBudget(Budget budget, List<Budget> list) {
+        record(() -> budgets.row((fm, all) -> fm.insertBudget(budget, all), list));
+    }
+
+    @Override
+    public void updateBudget(Budget budget, List<Budget> list) {
+        record(() -> budgets.row((fm, all) -> fm.updateBudget(budget, all), list));
+    }
+
+    @Override
+    public void deleteBudget(Budget budget, List<Budget> list) {
+        record(() -> budgets.row((fm, all) -> fm.deleteBudget(budget, all), list));
+    }
+
+    @Override
+    public ObservableList<Budget> loadBudgets() {
+        flush();
+        return delegate.loadBudgets();
+    }
+
+    // --- Flushing ---
+
+    /** Writes everything pending and waits for it to reach the underlying storage. */
+    public void flush() {
+        try {
+            writer.submit(this::writePending).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.SEVERE, "Write-behind flush failed", e.getCause());
+        }
+    }
+
+    @Override
+    public boolean supportsRowLevelWrites() {
+        return delegate.supportsRowLevelWrites();
+    }
+
+    @Override
+    public void close() {
+        if (!writer.isShutdown()) {
+            flush();
+            writer.shutdown();
+            try {
+                writer.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        delegate.close();
+    }
+
+    private void record(Runnable mutation) {
+        int pending;
+        synchronized (lock) {
+            mutation.run();
+            pending = ++pendingWrites;
+            if (pending >= maxDirty) {
+                if (scheduledFlush != null) scheduledFlush.cancel(false);
+                scheduledFlush = writer.schedule(this::writePending, 0, TimeUnit.MILLISECONDS);
+            } else if (scheduledFlush == null) {
+                scheduledFlush = writer.schedule(this::writePending, flushDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        notifyPending(pending);
+    }
+
+    private void writePending() {
+        Pending<Expense> expenseBatch;
+        Pending<Category> categoryBatch;
+        Pending<RecurringExpense> recurringBatch;
+        Pending<Budget> budgetBatch;
+        int flushed;
+        synchronized (lock) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            flushed = pendingWrites;
+            if (flushed == 0) return;
+            expenseBatch = expenses;
+            categoryBatch = categories;
+            recurringBatch = recurringExpenses;
+            budgetBatch = budgets;
+            expenses = new Pending<>(FileManager::saveExpenses);
+            categories = new Pending<>(FileManager::saveCategories);
+            recurringExpenses = new Pending<>(FileManager::saveRecurringExpenses);
+            budgets = new Pending<>(FileManager::saveBudgets);
+        }
+
+        try {
+            expenseBatch.writeTo(delegate);
+            categoryBatch.writeTo(delegate);
+            recurringBatch.writeTo(delegate);
+            budgetBatch.writeTo(delegate);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Write-behind flush failed", e);
+        }
+
+        int pending;
+        synchronized (lock) {
+            pendingWrites -= flushed;
+            pending = pendingWrites;
+        }
+        notifyPending(pending);
+    }
+
+    private void notifyPending(int pending) {
+        for (IntConsumer listener : pendingWritesListeners) {
+            listener.accept(pending);
+        }
+    }
+
+    /** Changes queued for one entity since the last flush. */
+    private static final class Pending<T> {
+        private final BiConsumer<FileManager, List<T>> fullSave;
+        private final List<BiConsumer<FileManager, List<T>>> rowWrites = new ArrayList<>();
+        // The caller's expense list, or a copy of any other list
+        private List<T> latest;
+        private boolean saveAll;
+
+        Pending(BiConsumer<FileManager, List<T>> fullSave) {
+            this.fullSave = fullSave;
+        }
+
+        void saveAll(List<T> all) {
+            // A full save supersedes every row change queued before it
+            rowWrites.clear();
+            latest = shareable(all);
+            saveAll = true;
+        }
+
+        void row(BiConsumer<FileManager, List<T>> write, List<T> all) {
+            latest = shareable(all);
+            if (!saveAll) {
+                rowWrites.add(write);
+            }
+        }
+
+        private static <T> List<T> shareable(List<T> all) {
+            // The expense list is snapshotted by the flush that needs it; other lists are not thread-safe
+            return all instanceof ExpenseList ? all : new ArrayList<>(all);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> List<T> snapshot(List<T> latest) {
+            return latest instanceof ExpenseList ? (List<T>) ((ExpenseList) latest).snapshot() : latest;
+        }
+
+        void writeTo(FileManager fileManager) {
+            if (latest == null) return;
+            // Without row-level storage every row write is a full save anyway, so do just one
+            if (saveAll || (!rowWrites.isEmpty() && !fileManager.supportsRowLevelWrites())) {
+                fullSave.accept(fileManager, snapshot(latest));
+                return;
+            }
+            // Row-level storage reads the expense list only through ExpenseList.snapshot
+            for (BiConsumer<FileManager, List<T>> write : rowWrites) {
+                write.accept(fileManager, latest);
+            }
+        }
+    }
+}
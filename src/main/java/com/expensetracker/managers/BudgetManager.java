@@ -10,31 +10,41 @@ import java.util.List;
 public class BudgetManager {
     private final ObservableList<Budget> budgets;
     private final FileManager fileManager;
+    private final IdIndex<Budget> idIndex;
 
     public BudgetManager(FileManager fileManager) {
         this.fileManager = fileManager;
         this.budgets = fileManager.loadBudgets();
+        this.idIndex = new IdIndex<>(budgets, Budget::getId);
     }
 
     public ObservableList<Budget> getBudgets() {
         return budgets;
     }
 
+    /** Returns the budget with this id, or null. */
+    public Budget findById(String id) {
+        return idIndex.get(id);
+    }
+
     public void addBudget(Budget budget) {
-        budgets.add(budget);
-        fileManager.saveBudgets(budgets);
+        idIndex.add(budget);
+        fileManager.insertBudget(budget, budgets);
     }
 
     public void deleteBudget(Budget budget) {
-        budgets.remove(budget);
-        fileManager.saveBudgets(budgets);
+        int position = idIndex.indexOf(budget.getId());
+        if (position != -1) {
+            idIndex.remove(position);
+            fileManager.deleteBudget(budget, budgets);
+        }
     }
 
     public void updateBudget(Budget oldBudget, Budget newBudget) {
-        int index = budgets.indexOf(oldBudget);
-        if (index != -1) {
-            budgets.set(index, newBudget);
-            fileManager.saveBudgets(budgets);
+        int position = idIndex.indexOf(oldBudget.getId());
+        if (position != -1) {
+            idIndex.set(position, newBudget);
+            fileManager.updateBudget(newBudget, budgets);
         }
     }
 }
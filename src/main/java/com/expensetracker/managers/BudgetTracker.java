@@ -0,0 +1,301 @@
+package com.expensetracker.managers;
+
+import com.expensetracker.model.Budget;
+import com.expensetracker.model.Expense;
+import com.expensetracker.store.ExpenseStore;
+import com.expensetracker.store.RowListener;
+import com.expensetracker.store.StringDictionary;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Spend against each budget in its current period (this week, month or year). The sums per
+ * category are kept in step with the store through {@link RowListener}, so an expense mutation
+ * costs O(1) no matter how many budgets or expenses there are.
+ * <p>
+ * When the date moves past a period, that period's sums are rebuilt from the rollup cube, which
+ * costs O(buckets) rather than a scan. Every read checks for this, and so does {@link #refresh}.
+ * <p>
+ * Thresholds are checked after each change to the expense list completes. An update removes and
+ * re-adds a row, and it only alerts if the final spend crosses a threshold. A budget that drops
+ * back below a threshold can alert again when it next crosses it.
+ */
+public class BudgetTracker implements RowListener {
+
+    /** Utilization percentages that raise a {@link ThresholdListener} event. */
+    public static final int[] THRESHOLDS = {80, 100};
+
+    /** Notified on the FX thread when a budget's spend reaches a threshold. */
+    public interface ThresholdListener {
+        void thresholdCrossed(Budget budget, int thresholdPercent, double spent);
+    }
+
+    private enum Period {
+        WEEKLY, MONTHLY, YEARLY;
+
+        LocalDate start(LocalDate date) {
+            switch (this) {
+                case WEEKLY:
+                    return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTHLY:
+                    return date.withDayOfMonth(1);
+                default:
+                    return date.withDayOfYear(1);
+            }
+        }
+
+        LocalDate end(LocalDate start) {
+            switch (this) {
+                case WEEKLY:
+                    return start.plusWeeks(1).minusDays(1);
+                case MONTHLY:
+                    return start.plusMonths(1).minusDays(1);
+                default:
+                    return start.plusYears(1).minusDays(1);
+            }
+        }
+
+        static Period of(String period) {
+            if (period == null) return null;
+            try {
+                return valueOf(period);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final Period[] PERIODS = Period.values();
+
+    private final ExpenseStore store;
+    private final ExpenseManager expenseManager;
+    private final ObservableList<Budget> budgets;
+    private final Clock clock;
+    private final List<ThresholdListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Per period: the current window as epoch days, and cents spent in it per category id
+    private final int[] windowStart = new int[PERIODS.length];
+    private final int[] windowEnd = new int[PERIODS.length];
+    private final long[][] spentCents = new long[PERIODS.length][16];
+
+    private Map<String, List<Budget>> budgetsByCategory = new HashMap<>();
+    // Highest threshold already reported per budget id in the current period
+    private final Map<String, Integer> reportedLevels = new HashMap<>();
+    // Category ids touched since the last threshold check
+    private final BitSet dirtyCategories = new BitSet();
+
+    public BudgetTracker(ExpenseManager expenseManager, BudgetManager budgetManager) {
+        this(expenseManager, budgetManager, Clock.systemDefaultZone());
+    }
+
+    public BudgetTracker(ExpenseManager expenseManager, BudgetManager budgetManager, Clock clock) {
+        this.expenseManager = expenseManager;
+        this.store = expenseManager.getStore();
+        this.budgets = budgetManager.getBudgets();
+        this.clock = clock;
+
+        LocalDate today = LocalDate.now(clock);
+        for (int p = 0; p < PERIODS.length; p++) {
+            resetWindow(p, today);
+        }
+        indexBudgets();
+        // Budgets already over a threshold at startup are not reported again
+        for (Budget budget : budgets) {
+            reportedLevels.put(budget.getId(), level(budget));
+        }
+
+        store.addRowListener(this);
+        // The list changes after the store, so the sums are final by the time this runs
+        expenseManager.getExpenses().addListener((ListChangeListener<Expense>) c -> checkThresholds());
+        budgets.addListener((ListChangeListener<Budget>) c -> budgetsChanged(c));
+    }
+
+    public void addThresholdListener(ThresholdListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeThresholdListener(ThresholdListener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Amount spent in the budget's category during its current period. */
+    public double getSpent(Budget budget) {
+        refresh();
+        return spentCents(budget) / 100.0;
+    }
+
+    /** Spend as a percentage of the budget amount; 0 for a budget with an unknown period. */
+    public double getUtilization(Budget budget) {
+        refresh();
+        return utilization(budget);
+    }
+
+    /** First and last day of the budget's current period, or null for an unknown period. */
+    public LocalDate[] getCurrentPeriod(Budget budget) {
+        refresh();
+        Period period = Period.of(budget.getPeriod());
+        if (period == null) return null;
+        int p = period.ordinal();
+        return new LocalDate[] {LocalDate.ofEpochDay(windowStart[p]), LocalDate.ofEpochDay(windowEnd[p])};
+    }
+
+    /**
+     * Moves to the current period if the date has passed the end of the one being tracked. Sums
+     * and reported thresholds start over from whatever is already dated in the new period.
+     */
+    public void refresh() {
+        LocalDate today = LocalDate.now(clock);
+        int day = (int) today.toEpochDay();
+        boolean[] rolled = new boolean[PERIODS.length];
+        boolean anyRolled = false;
+        for (int p = 0; p < PERIODS.length; p++) {
+            if (day < windowStart[p] || day > windowEnd[p]) {
+                resetWindow(p, today);
+                rolled[p] = true;
+                anyRolled = true;
+            }
+        }
+        if (!anyRolled) return;
+        for (Budget budget : budgets) {
+            Period period = Period.of(budget.getPeriod());
+            if (period != null && rolled[period.ordinal()]) {
+                reportedLevels.put(budget.getId(), level(budget));
+            }
+        }
+    }
+
+    // --- RowListener; called under the store's write lock ---
+
+    @Override
+    public void rowAdded(int row) {
+        apply(row, store.getCents(row));
+    }
+
+    @Override
+    public void rowRemoving(int row) {
+        apply(row, -store.getCents(row));
+    }
+
+    @Override
+    public void rowRemoved(int row) {
+        // Sums do not refer to rows
+    }
+
+    private void apply(int row, long cents) {
+        int day = store.getEpochDay(row);
+        int categoryId = store.getCategoryId(row);
+        for (int p = 0; p < PERIODS.length; p++) {
+            if (day >= windowStart[p] && day <= windowEnd[p]) {
+                long[] sums = ensure(p, categoryId);
+                sums[categoryId] += cents;
+                dirtyCategories.set(categoryId);
+            }
+        }
+    }
+
+    private long[] ensure(int p, int categoryId) {
+        long[] sums = spentCents[p];
+        if (categoryId >= sums.length) {
+            sums = Arrays.copyOf(sums, Math.max(categoryId + 1, sums.length * 2));
+            spentCents[p] = sums;
+        }
+        return sums;
+    }
+
+    private void resetWindow(int p, LocalDate today) {
+        Period period = PERIODS[p];
+        LocalDate start = period.start(today);
+        LocalDate end = period.end(start);
+        windowStart[p] = (int) start.toEpochDay();
+        windowEnd[p] = (int) end.toEpochDay();
+        Arrays.fill(spentCents[p], 0);
+        StringDictionary categories = store.getCategories();
+        expenseManager.getRollup().categoryTotals(start, end).forEach((category, cents) -> {
+            int categoryId = categories.find(category);
+            ensure(p, categoryId)[categoryId] = cents;
+        });
+    }
+
+    // --- Thresholds ---
+
+    private void checkThresholds() {
+        if (dirtyCategories.isEmpty()) return;
+        refresh();
+        StringDictionary categories = store.getCategories();
+        for (int id = dirtyCategories.nextSetBit(0); id >= 0; id = dirtyCategories.nextSetBit(id + 1)) {
+            List<Budget> affected = budgetsByCategory.get(categories.get(id));
+            if (affected == null) continue;
+            for (Budget budget : affected) {
+                int level = level(budget);
+                int reported = reportedLevels.getOrDefault(budget.getId(), 0);
+                reportedLevels.put(budget.getId(), level);
+                if (level > reported) {
+                    double spent = spentCents(budget) / 100.0;
+                    for (ThresholdListener listener : listeners) {
+                        listener.thresholdCrossed(budget, level, spent);
+                    }
+                }
+            }
+        }
+        dirtyCategories.clear();
+    }
+
+    private void budgetsChanged(ListChangeListener.Change<? extends Budget> c) {
+        indexBudgets();
+        while (c.next()) {
+            for (Budget removed : c.getRemoved()) {
+                reportedLevels.remove(removed.getId());
+            }
+            // A new or edited budget starts from its current level, so saving it raises no alert
+            for (Budget added : c.getAddedSubList()) {
+                reportedLevels.put(added.getId(), level(added));
+            }
+        }
+    }
+
+    private void indexBudgets() {
+        Map<String, List<Budget>> byCategory = new HashMap<>();
+        for (Budget budget : budgets) {
+            byCategory.computeIfAbsent(budget.getCategory(), k -> new ArrayList<>(1)).add(budget);
+        }
+        budgetsByCategory = byCategory;
+    }
+
+    /** The highest threshold the budget has reached, or 0. */
+    private int level(Budget budget) {
+        double utilization = utilization(budget);
+        int level = 0;
+        for (int threshold : THRESHOLDS) {
+            if (utilization >= threshold) {
+                level = threshold;
+            }
+        }
+        return level;
+    }
+
+    private double utilization(Budget budget) {
+        if (budget.getBudgetAmount() <= 0) return 0;
+        // Cents over currency units is already a percentage
+        return spentCents(budget) / budget.getBudgetAmount();
+    }
+
+    private long spentCents(Budget budget) {
+        Period period = Period.of(budget.getPeriod());
+        int categoryId = store.getCategories().find(budget.getCategory());
+        if (period == null || categoryId == -1) return 0;
+        long[] sums = spentCents[period.ordinal()];
+        return categoryId < sums.length ? sums[categoryId] : 0;
+    }
+}
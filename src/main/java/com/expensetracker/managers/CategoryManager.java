@@ -8,31 +8,41 @@ import javafx.collections.ObservableList;
 public class CategoryManager {
     private final ObservableList<Category> categories;
     private final FileManager fileManager;
+    private final IdIndex<Category> idIndex;
 
     public CategoryManager(FileManager fileManager) {
         this.fileManager = fileManager;
         this.categories = fileManager.loadCategories();
+        this.idIndex = new IdIndex<>(categories, Category::getId);
     }
 
     public ObservableList<Category> getCategories() {
         return categories;
     }
 
+    /** Returns the category with this id, or null. */
+    public Category findById(String id) {
+        return idIndex.get(id);
+    }
+
     public void addCategory(Category category) {
-        categories.add(category);
-        fileManager.saveCategories(categories);
+        idIndex.add(category);
+        fileManager.insertCategory(category, categories);
     }
 
     public void deleteCategory(Category category) {
-        categories.remove(category);
-        fileManager.saveCategories(categories);
+        int position = idIndex.indexOf(category.getId());
+        if (position != -1) {
+            idIndex.remove(position);
+            fileManager.deleteCategory(category, categories);
+        }
     }
 
     public void updateCategory(Category oldCategory, Category newCategory) {
-        int index = categories.indexOf(oldCategory);
-        if (index != -1) {
-            categories.set(index, newCategory);
-            fileManager.saveCategories(categories);
+        int position = idIndex.indexOf(oldCategory.getId());
+        if (position != -1) {
+            idIndex.set(position, newCategory);
+            fileManager.updateCategory(newCategory, categories);
         }
     }
 }
@@ -2,36 +2,151 @@ package com.expensetracker.managers;
 
 import com.expensetracker.file.FileManager;
 import com.expensetracker.model.Expense;
-import javafx.collections.ObservableList;
+import com.expensetracker.store.ExpenseList;
+import com.expensetracker.store.ExpenseStore;
+import com.expensetracker.store.RollupCube;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class ExpenseManager {
-    private final ObservableList<Expense> expenses;
+    // Expenses handed from the loader to the store at a time
+    private static final int LOAD_BATCH = 65536;
+
     private final FileManager fileManager;
+    // Holds the expenses; there is no list of Expense objects behind it
+    private final ExpenseStore store = new ExpenseStore();
+    // Sums per (day, category), for reports over any date range
+    private final RollupCube rollup = new RollupCube(store);
+    // Observable view of the store; element i is row i
+    private final ExpenseList expenses = new ExpenseList(store);
 
     public ExpenseManager(FileManager fileManager) {
+        this(fileManager, true);
+    }
+
+    /**
+     * @param load whether to read the stored expenses now. If not, the manager starts empty and a
+     *             loader hands the stored expenses over with {@link #appendLoaded}.
+     */
+    public ExpenseManager(FileManager fileManager, boolean load) {
         this.fileManager = fileManager;
-        this.expenses = fileManager.loadExpenses();
+        store.addRowListener(rollup);
+        if (!load) return;
+        // Streamed in batches, so a backend that streams never has every expense on the heap at once
+        List<Expense> batch = new ArrayList<>();
+        fileManager.loadExpenses(expense -> {
+            batch.add(expense);
+            if (batch.size() == LOAD_BATCH) {
+                store.addAll(batch);
+                batch.clear();
+            }
+        });
+        store.addAll(batch);
     }
 
-    public ObservableList<Expense> getExpenses() {
+    /**
+     * Appends expenses read from storage as one list change. Nothing is written back, and ids are
+     * not checked against the rows already present, just as when the constructor loads.
+     */
+    public void appendLoaded(List<Expense> batch) {
+        expenses.appendAll(batch);
+    }
+
+    public ExpenseList getExpenses() {
         return expenses;
     }
 
+    public ExpenseStore getStore() {
+        return store;
+    }
+
+    public RollupCube getRollup() {
+        return rollup;
+    }
+
+    /** Returns the expense with this id, or null. */
+    public Expense findById(String id) {
+        int row = store.findRow(id);
+        return row == -1 ? null : expenses.get(row);
+    }
+
+    /** Total of all expenses, read from the store's running sum instead of walking the list. */
+    public double getTotalAmount() {
+        return store.totalCents() / 100.0;
+    }
+
+    /**
+     * Adds an expense. An expense whose id is already present replaces the existing one, the same
+     * way the storage backends treat a repeated id.
+     */
     public void addExpense(Expense expense) {
-        expenses.add(expense);
+        int row = store.findRow(expense.getId());
+        if (row != -1) {
+            expenses.replace(row, expense);
+        } else {
+            expenses.append(expense);
+        }
+        fileManager.insertExpense(expense, expenses);
+    }
+
+    /**
+     * Adds a batch of expenses with a single list change and a single write to storage.
+     * Ids that are already present replace the existing expense, as in {@link #addExpense}.
+     */
+    public void addAll(List<Expense> batch) {
+        if (batch.isEmpty()) return;
+        fileManager.insertExpenses(merge(batch), expenses);
+    }
+
+    /**
+     * Adds a batch like {@link #addAll} but does not write it. For bulk jobs on storage without
+     * row-level writes, where every batch would otherwise rewrite the whole file; the caller
+     * writes once at the end with {@link #saveAll}.
+     */
+    public void addAllUnsaved(List<Expense> batch) {
+        merge(batch);
+    }
+
+    /** Writes every expense to storage in one full save. */
+    public void saveAll() {
         fileManager.saveExpenses(expenses);
     }
 
+    /** Adds or replaces the batch's expenses, the last one winning per id, and returns them. */
+    private List<Expense> merge(List<Expense> batch) {
+        Map<String, Expense> byId = new LinkedHashMap<>();
+        for (Expense expense : batch) {
+            byId.put(expense.getId(), expense);
+        }
+        List<Expense> added = new ArrayList<>(byId.size());
+        for (Expense expense : byId.values()) {
+            int row = store.findRow(expense.getId());
+            if (row != -1) {
+                expenses.replace(row, expense);
+            } else {
+                added.add(expense);
+            }
+        }
+        expenses.appendAll(added);
+        return new ArrayList<>(byId.values());
+    }
+
     public void deleteExpense(Expense expense) {
-        expenses.remove(expense);
-        fileManager.saveExpenses(expenses);
+        int row = store.findRow(expense.getId());
+        if (row != -1) {
+            expenses.removeRow(row);
+            fileManager.deleteExpense(expense, expenses);
+        }
     }
 
     public void updateExpense(Expense oldExpense, Expense newExpense) {
-        int index = expenses.indexOf(oldExpense);
-        if (index != -1) {
-            expenses.set(index, newExpense);
-            fileManager.saveExpenses(expenses);
+        int row = store.findRow(oldExpense.getId());
+        if (row != -1) {
+            expenses.replace(row, newExpense);
+            fileManager.updateExpense(newExpense, expenses);
         }
     }
 }
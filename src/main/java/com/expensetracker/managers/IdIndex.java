@@ -0,0 +1,78 @@
+package com.expensetracker.managers;
+
+import javafx.collections.ObservableList;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Keeps an id -> position map for a manager's observable list. All mutations of the list go
+ * through here so the map never drifts. Lookup and update are O(1). Removal keeps the list order
+ * and renumbers the records after the removed one, which is cheap for these short lists.
+ */
+class IdIndex<T> {
+    private final ObservableList<T> list;
+    private final Function<T, String> idOf;
+    private final Map<String, Integer> positions;
+
+    IdIndex(ObservableList<T> list, Function<T, String> idOf) {
+        this.list = list;
+        this.idOf = idOf;
+        this.positions = new HashMap<>(Math.max(16, list.size() * 4 / 3 + 1));
+        for (int i = 0; i < list.size(); i++) {
+            positions.put(idOf.apply(list.get(i)), i);
+        }
+    }
+
+    /** Position of the record with this id, or -1. */
+    int indexOf(String id) {
+        Integer position = id == null ? null : positions.get(id);
+        return position == null ? -1 : position;
+    }
+
+    T get(String id) {
+        int position = indexOf(id);
+        return position == -1 ? null : list.get(position);
+    }
+
+    /** Appends a record, or replaces the one with the same id in place. */
+    void add(T record) {
+        int position = indexOf(idOf.apply(record));
+        if (position != -1) {
+            set(position, record);
+            return;
+        }
+        positions.put(idOf.apply(record), list.size());
+        list.add(record);
+    }
+
+    /** Appends records whose ids are not in the list yet, as a single list change. */
+    void addAll(List<T> records) {
+        int position = list.size();
+        for (T record : records) {
+            positions.put(idOf.apply(record), position++);
+        }
+        list.addAll(records);
+    }
+
+    void set(int position, T record) {
+        String oldId = idOf.apply(list.get(position));
+        String newId = idOf.apply(record);
+        if (!oldId.equals(newId)) {
+            positions.remove(oldId);
+        }
+        positions.put(newId, position);
+        list.set(position, record);
+    }
+
+    /** Removes the record at the position; the records after it move up one place. */
+    void remove(int position) {
+        positions.remove(idOf.apply(list.get(position)));
+        list.remove(position);
+        for (int i = position; i < list.size(); i++) {
+            positions.put(idOf.apply(list.get(i)), i);
+        }
+    }
+}
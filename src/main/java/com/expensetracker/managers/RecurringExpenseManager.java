@@ -3,65 +3,224 @@ package com.expensetracker.managers;
 import com.expensetracker.file.FileManager;
 import com.expensetracker.model.Expense;
 import com.expensetracker.model.RecurringExpense;
+import com.expensetracker.store.ExpenseQuery;
+import com.expensetracker.store.ExpenseStore;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
 
 public class RecurringExpenseManager {
+    private static final Logger LOGGER = Logger.getLogger(RecurringExpenseManager.class.getName());
+
+    // Occurrences generated for one rule in one run; older missed ones are skipped
+    static final int MAX_OCCURRENCES_PER_RUN = 366;
+
     private final ObservableList<RecurringExpense> recurringExpenses;
     private final FileManager fileManager;
+    private final IdIndex<RecurringExpense> idIndex;
     private final ExpenseManager expenseManager;
+    private final RecurringSchedule schedule;
+    private final LocalDate loadDate = LocalDate.now();
+    // Rules loaded without a watermark although already due, i.e. saved before watermarks existed
+    private final Set<String> unseeded = ConcurrentHashMap.newKeySet();
 
     public RecurringExpenseManager(FileManager fileManager, ExpenseManager expenseManager) {
         this.fileManager = fileManager;
         this.expenseManager = expenseManager;
         this.recurringExpenses = fileManager.loadRecurringExpenses();
+        this.idIndex = new IdIndex<>(recurringExpenses, RecurringExpense::getId);
+        this.schedule = new RecurringSchedule(recurringExpenses);
+        for (RecurringExpense rule : recurringExpenses) {
+            if (rule.getLastGenerated() == null && !rule.getStartDate().isAfter(loadDate)) {
+                unseeded.add(rule.getId());
+            }
+        }
     }
 
     public ObservableList<RecurringExpense> getRecurringExpenses() {
         return recurringExpenses;
     }
 
+    /** Returns the recurring expense with this id, or null. */
+    public RecurringExpense findById(String id) {
+        return idIndex.get(id);
+    }
+
     public void addRecurringExpense(RecurringExpense recurringExpense) {
-        recurringExpenses.add(recurringExpense);
-        fileManager.saveRecurringExpenses(recurringExpenses);
+        idIndex.add(recurringExpense);
+        schedule.schedule(recurringExpense);
+        fileManager.insertRecurringExpense(recurringExpense, recurringExpenses);
     }
 
     public void deleteRecurringExpense(RecurringExpense recurringExpense) {
-        recurringExpenses.remove(recurringExpense);
-        fileManager.saveRecurringExpenses(recurringExpenses);
+        int position = idIndex.indexOf(recurringExpense.getId());
+        if (position != -1) {
+            idIndex.remove(position);
+            unseeded.remove(recurringExpense.getId());
+            fileManager.deleteRecurringExpense(recurringExpense, recurringExpenses);
+        }
     }
 
     public void updateRecurringExpense(RecurringExpense oldRecurringExpense, RecurringExpense newRecurringExpense) {
-        int index = recurringExpenses.indexOf(oldRecurringExpense);
-        if (index != -1) {
-            recurringExpenses.set(index, newRecurringExpense);
-            fileManager.saveRecurringExpenses(recurringExpenses);
+        int position = idIndex.indexOf(oldRecurringExpense.getId());
+        if (position != -1) {
+            idIndex.set(position, newRecurringExpense);
+            schedule.schedule(newRecurringExpense);
+            fileManager.updateRecurringExpense(newRecurringExpense, recurringExpenses);
         }
     }
 
+    /**
+     * Generates the expenses for every occurrence due up to today that has not been generated
+     * yet, each dated on its own occurrence date. A rule whose app was closed for three months
+     * gets three monthly expenses. The expenses are added as one batch, and the advanced
+     * watermarks are written as one batch too.
+     * <p>
+     * Each generated expense gets an id derived from the rule id and the occurrence date. If the
+     * watermarks are lost after the expenses were saved, running again replaces those expenses
+     * instead of duplicating them.
+     * <p>
+     * A rule saved before watermarks existed has none, but earlier versions already added an
+     * expense dated on each launch. Its watermark is first set to the date of the latest such
+     * expense, or to the date the rules were loaded if there is none, so history is not generated
+     * twice. At most {@value #MAX_OCCURRENCES_PER_RUN} occurrences are generated per rule and run;
+     * older ones are skipped with a warning.
+     */
     public void generateDueExpenses() {
-        LocalDate today = LocalDate.now();
-        for (RecurringExpense re : recurringExpenses) {
-            LocalDate nextDueDate = re.getStartDate();
-            // Logic to determine if a recurring expense is due
-            // This is a simplified example, a real implementation would be more complex
-            // and track the last generated date for each recurring expense.
-            if (nextDueDate.isBefore(today) || nextDueDate.isEqual(today)) {
-                // Create a new Expense from the RecurringExpense template
-                Expense newExpense = new Expense(
-                        re.getAmount(),
-                        re.getCategory(),
-                        today, // Use today's date for the generated expense
-                        re.getDescription()
-                );
-                expenseManager.addExpense(newExpense);
-                // In a real app, you'd update the recurring expense's last generated date
-                // or next due date to prevent duplicate generation.
+        apply(collectDue(LocalDate.now()));
+    }
+
+    /**
+     * Takes the rules due up to {@code today} off the schedule and expands their occurrences into
+     * expenses. Nothing is changed until the batch is passed to {@link #apply}. Safe to call off
+     * the FX thread.
+     */
+    public DueBatch collectDue(LocalDate today) {
+        DueBatch batch = new DueBatch();
+        RecurringSchedule.Due due;
+        while ((due = schedule.pollDue(today)) != null) {
+            RecurringExpense rule = due.rule;
+            LocalDate date = due.date;
+            LocalDate last = null;
+            if (unseeded.contains(rule.getId())) {
+                last = legacyWatermark(rule);
+                date = RecurringSchedule.occurrenceAfter(rule, last);
+            }
+            // Only the most recent occurrences are kept, so a rule years behind cannot flood the store
+            Deque<LocalDate> dates = new ArrayDeque<>();
+            int skipped = 0;
+            while (date != null && !date.isAfter(today)) {
+                if (dates.size() == MAX_OCCURRENCES_PER_RUN) {
+                    dates.removeFirst();
+                    skipped++;
+                }
+                dates.addLast(date);
+                date = RecurringSchedule.occurrenceAfter(rule, date);
+            }
+            if (skipped > 0) {
+                LOGGER.warning("Recurring expense " + rule.getId() + " has " + (skipped + dates.size())
+                        + " missed occurrences; generating the latest " + dates.size() + " from " + dates.getFirst());
+            }
+            List<Expense> expenses = new ArrayList<>(dates.size());
+            for (LocalDate occurrence : dates) {
+                expenses.add(new Expense(occurrenceId(rule, occurrence), rule.getAmount(), rule.getCategory(), occurrence, rule.getDescription()));
             }
+            if (!dates.isEmpty()) {
+                last = dates.getLast();
+            }
+            batch.rules.add(rule);
+            batch.watermarks.add(last);
+            batch.expenses.add(expenses);
+        }
+        return batch;
+    }
+
+    /**
+     * Adds the expenses of a collected batch and advances the rules' watermarks. A rule that was
+     * edited or deleted since the batch was collected is skipped; an edited rule is already
+     * scheduled again under its new definition. Call on the FX thread.
+     */
+    public void apply(DueBatch batch) {
+        List<Expense> generated = new ArrayList<>();
+        List<RecurringExpense> advanced = new ArrayList<>();
+        for (int i = 0; i < batch.rules.size(); i++) {
+            RecurringExpense rule = batch.rules.get(i);
+            int position = idIndex.indexOf(rule.getId());
+            if (position == -1 || recurringExpenses.get(position) != rule) continue;
+            RecurringExpense updated = rule.withLastGenerated(batch.watermarks.get(i));
+            idIndex.set(position, updated);
+            schedule.schedule(updated);
+            advanced.add(updated);
+            unseeded.remove(rule.getId());
+            generated.addAll(batch.expenses.get(i));
         }
+        if (advanced.isEmpty()) return;
+        // A seeded legacy rule may advance without generating anything
+        if (!generated.isEmpty()) {
+            expenseManager.addAll(generated);
+        }
+        fileManager.updateRecurringExpenses(advanced, recurringExpenses);
+    }
+
+    /**
+     * Watermark for a rule saved before watermarks existed: the date of the latest expense that
+     * matches it, which earlier versions added with the launch date, or else the load date.
+     */
+    private LocalDate legacyWatermark(RecurringExpense rule) {
+        ExpenseStore store = expenseManager.getStore();
+        ExpenseQuery query = new ExpenseQuery(rule.getStartDate(), loadDate, rule.getCategory(),
+                rule.getAmount(), rule.getAmount(), null);
+        int latest = store.withReadLock(() -> {
+            int day = Integer.MIN_VALUE;
+            for (int row : store.query(query)) {
+                if (store.getEpochDay(row) > day && store.getDescription(row).equals(rule.getDescription())) {
+                    day = store.getEpochDay(row);
+                }
+            }
+            return day;
+        });
+        return latest == Integer.MIN_VALUE ? loadDate : LocalDate.ofEpochDay(latest);
+    }
+
+    /** Expenses generated for the rules that were due, waiting to be applied. */
+    public static final class DueBatch {
+        private final List<RecurringExpense> rules = new ArrayList<>();
+        private final List<LocalDate> watermarks = new ArrayList<>();
+        private final List<List<Expense>> expenses = new ArrayList<>();
+
+        public boolean isEmpty() {
+            return rules.isEmpty();
+        }
+
+        /** Number of expenses the batch generates. */
+        public int getExpenseCount() {
+            int count = 0;
+            for (List<Expense> generated : expenses) {
+                count += generated.size();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * The earliest date a rule is next due, or null if nothing is scheduled. May be the date of a
+     * rule that has since changed; collecting then simply finds nothing to do.
+     */
+    public LocalDate getNextDueDate() {
+        return schedule.peekDate();
+    }
+
+    private static String occurrenceId(RecurringExpense rule, LocalDate date) {
+        return UUID.nameUUIDFromBytes((rule.getId() + '/' + date).getBytes(StandardCharsets.UTF_8)).toString();
     }
 }
@@ -0,0 +1,97 @@
+package com.expensetracker.managers;
+
+import com.expensetracker.model.RecurringExpense;
+import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Generates recurring expenses while the app is running. A single timer is armed for the start of
+ * the earliest next-due day. When it fires, the due expenses are expanded on the timer thread and
+ * handed to the FX thread as one batch, then the timer is armed for the next due day.
+ * <p>
+ * The timer is re-armed whenever a rule is added, edited or removed. The wait is capped at
+ * {@link #MAX_SLEEP}, because the JDK timer does not count time the machine spends suspended. A
+ * laptop that sleeps overnight would otherwise wake up to a timer still hours away. A capped
+ * wake-up with nothing due only arms the timer again.
+ */
+public class RecurringExpenseScheduler {
+    private static final Logger LOGGER = Logger.getLogger(RecurringExpenseScheduler.class.getName());
+
+    private static final Duration MAX_SLEEP = Duration.ofHours(1);
+
+    private final RecurringExpenseManager recurringExpenseManager;
+    private final Clock clock;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "recurring-expenses");
+        t.setDaemon(true);
+        return t;
+    });
+    private ScheduledFuture<?> pending;
+
+    public RecurringExpenseScheduler(RecurringExpenseManager recurringExpenseManager) {
+        this(recurringExpenseManager, Clock.systemDefaultZone());
+    }
+
+    public RecurringExpenseScheduler(RecurringExpenseManager recurringExpenseManager, Clock clock) {
+        this.recurringExpenseManager = recurringExpenseManager;
+        this.clock = clock;
+        recurringExpenseManager.getRecurringExpenses()
+                .addListener((ListChangeListener<RecurringExpense>) c -> reschedule());
+    }
+
+    /** Arms the timer for the earliest due rule. */
+    public void start() {
+        reschedule();
+    }
+
+    /** Cancels any armed timer and arms it again for the earliest due rule, if there is one. */
+    public synchronized void reschedule() {
+        if (timer.isShutdown()) return;
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+        LocalDate next = recurringExpenseManager.getNextDueDate();
+        if (next == null) return;
+        long delay = Duration.between(clock.instant(), next.atStartOfDay(clock.getZone()).toInstant()).toMillis();
+        delay = Math.max(0, Math.min(delay, MAX_SLEEP.toMillis()));
+        pending = timer.schedule(this::generateDue, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void generateDue() {
+        RecurringExpenseManager.DueBatch batch;
+        try {
+            batch = recurringExpenseManager.collectDue(LocalDate.now(clock));
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Generating recurring expenses failed", e);
+            return;
+        }
+        if (batch.isEmpty()) {
+            reschedule();
+            return;
+        }
+        Platform.runLater(() -> {
+            recurringExpenseManager.apply(batch);
+            // Also covers a batch whose rules had all changed, which leaves the list untouched
+            reschedule();
+        });
+    }
+
+    /** Stops the timer thread. */
+    public synchronized void shutdown() {
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,97 @@
+package com.expensetracker.managers;
+
+import com.expensetracker.model.RecurrenceRule;
+import com.expensetracker.model.RecurringExpense;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.logging.Logger;
+
+/**
+ * Recurring expense rules ordered by their next due date, so finding the due ones costs
+ * O(due * log rules). Only the head of the queue is checked when nothing is due.
+ * <p>
+ * Occurrence dates come from the rule's {@link RecurrenceRule}, which jumps straight to the next
+ * one. A plain monthly rule that starts on the 31st goes back to the 31st after a short month.
+ * <p>
+ * Entries are not removed when a rule changes or is deleted. A rule that changes gets a new entry.
+ * Whoever polls an entry must check the rule is still current, by identity, and drop it if not.
+ * <p>
+ * The queue is guarded by this object, so a background timer can poll it while the FX thread
+ * schedules changed rules.
+ */
+class RecurringSchedule {
+    private static final Logger LOGGER = Logger.getLogger(RecurringSchedule.class.getName());
+
+    /** A rule and the date its next occurrence is due. */
+    static final class Due {
+        final RecurringExpense rule;
+        final LocalDate date;
+
+        Due(RecurringExpense rule, LocalDate date) {
+            this.rule = rule;
+            this.date = date;
+        }
+    }
+
+    private final PriorityQueue<Due> queue = new PriorityQueue<>((a, b) -> a.date.compareTo(b.date));
+
+    RecurringSchedule(List<RecurringExpense> rules) {
+        List<Due> entries = new ArrayList<>(rules.size());
+        for (RecurringExpense rule : rules) {
+            LocalDate next = nextOccurrence(rule);
+            if (next != null) {
+                entries.add(new Due(rule, next));
+            }
+        }
+        // Bulk insert heapifies in O(n)
+        queue.addAll(entries);
+    }
+
+    /** Schedules a new or changed rule. */
+    synchronized void schedule(RecurringExpense rule) {
+        LocalDate next = nextOccurrence(rule);
+        if (next != null) {
+            queue.add(new Due(rule, next));
+        }
+    }
+
+    /** Removes and returns the earliest entry due on or before {@code today}, or null if none is. */
+    synchronized Due pollDue(LocalDate today) {
+        if (queue.isEmpty() || queue.peek().date.isAfter(today)) {
+            return null;
+        }
+        return queue.poll();
+    }
+
+    /** The earliest due date among scheduled rules, or null if none. Stale entries may be counted. */
+    synchronized LocalDate peekDate() {
+        return queue.isEmpty() ? null : queue.peek().date;
+    }
+
+    /** The first occurrence after the rule's watermark, or null if there is none or the rule is invalid. */
+    static LocalDate nextOccurrence(RecurringExpense rule) {
+        LocalDate last = rule.getLastGenerated();
+        RecurrenceRule recurrence = recurrenceOf(rule);
+        if (recurrence == null) return null;
+        return last == null ? recurrence.onOrAfter(rule.getStartDate(), rule.getStartDate())
+                : recurrence.after(rule.getStartDate(), last);
+    }
+
+    /** The first occurrence strictly after {@code date}, or null if there is none or the rule is invalid. */
+    static LocalDate occurrenceAfter(RecurringExpense rule, LocalDate date) {
+        RecurrenceRule recurrence = recurrenceOf(rule);
+        return recurrence == null ? null : recurrence.after(rule.getStartDate(), date);
+    }
+
+    private static RecurrenceRule recurrenceOf(RecurringExpense rule) {
+        try {
+            return RecurrenceRule.parse(rule.getFrequency());
+        } catch (IllegalArgumentException e) {
+            LOGGER.warning("Recurring expense " + rule.getId() + " has an invalid frequency; not scheduled: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.expensetracker.managers;
+
+import com.expensetracker.file.FileManager;
+import com.expensetracker.model.Expense;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads the four entity files at startup, each on its own thread, so the main window can show
+ * before the expense history is in. Categories, budgets and recurring expenses are small and are
+ * loaded straight into their managers. Expenses stream from {@link FileManager#loadExpenses(Consumer)}
+ * and reach the {@link ExpenseManager} on the FX thread in batches, so the table fills in while the
+ * window is already up.
+ * <p>
+ * At most {@link #BATCHES_IN_FLIGHT} batches wait for the FX thread at a time. A reader faster than
+ * the FX thread therefore blocks instead of flooding the event queue, and the heap holds a few
+ * batches rather than the whole file.
+ */
+public class StartupLoader {
+    private static final Logger LOGGER = Logger.getLogger(StartupLoader.class.getName());
+
+    // Small enough that appending one batch does not stall the FX thread for a visible time
+    private static final int BATCH_SIZE = 20_000;
+    private static final int BATCHES_IN_FLIGHT = 4;
+
+    private final FileManager fileManager;
+    private final ExpenseManager expenseManager;
+    private final ExecutorService pool = Executors.newFixedThreadPool(4, r -> {
+        Thread t = new Thread(r, "startup-loader");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ReadOnlyIntegerWrapper loadedExpenses = new ReadOnlyIntegerWrapper(this, "loadedExpenses");
+    private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+    private CompletableFuture<CategoryManager> categories;
+    private CompletableFuture<BudgetManager> budgets;
+    private CompletableFuture<RecurringExpenseManager> recurringExpenses;
+
+    public StartupLoader(FileManager fileManager) {
+        this.fileManager = fileManager;
+        this.expenseManager = new ExpenseManager(fileManager, false);
+    }
+
+    /** Starts reading all four files. Call once, from the FX thread. */
+    public void start() {
+        categories = CompletableFuture.supplyAsync(() -> new CategoryManager(fileManager), pool);
+        budgets = CompletableFuture.supplyAsync(() -> new BudgetManager(fileManager), pool);
+        recurringExpenses = CompletableFuture.supplyAsync(
+                () -> new RecurringExpenseManager(fileManager, expenseManager), pool);
+        pool.execute(this::loadExpenses);
+        // The threads exit once the four loads are done
+        pool.shutdown();
+    }
+
+    /** Empty at first; filled in batches while loading. */
+    public ExpenseManager getExpenseManager() {
+        return expenseManager;
+    }
+
+    /** Waits for the categories, which are needed to show the window. */
+    public CategoryManager awaitCategories() {
+        return join(categories);
+    }
+
+    /** The budgets; only valid once {@link #loaded} has completed. */
+    public BudgetManager getBudgetManager() {
+        return join(budgets);
+    }
+
+    /** The recurring expenses; only valid once {@link #loaded} has completed. */
+    public RecurringExpenseManager getRecurringExpenseManager() {
+        return join(recurringExpenses);
+    }
+
+    /** Expenses appended to the {@link ExpenseManager} so far; changes on the FX thread. */
+    public ReadOnlyIntegerProperty loadedExpensesProperty() {
+        return loadedExpenses.getReadOnlyProperty();
+    }
+
+    /**
+     * Completes on the FX thread once every file is loaded and the last expense batch has been
+     * appended, or completes exceptionally if any load failed.
+     */
+    public CompletableFuture<Void> loaded() {
+        return loaded;
+    }
+
+    private void loadExpenses() {
+        try {
+            BatchSink sink = new BatchSink();
+            fileManager.loadExpenses(sink);
+            sink.flush();
+            // The other loads finish long before the expenses on any real history
+            budgets.join();
+            recurringExpenses.join();
+            // Queued behind the last batch
+            Platform.runLater(() -> loaded.complete(null));
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Startup loading failed", e);
+            Platform.runLater(() -> loaded.completeExceptionally(e));
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /** Collects streamed expenses and hands them to the FX thread a batch at a time. */
+    private final class BatchSink implements Consumer<Expense> {
+        private final Semaphore inFlight = new Semaphore(BATCHES_IN_FLIGHT);
+        private List<Expense> batch = new ArrayList<>(BATCH_SIZE);
+
+        @Override
+        public void accept(Expense expense) {
+            batch.add(expense);
+            if (batch.size() == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) return;
+            List<Expense> ready = batch;
+            batch = new ArrayList<>(BATCH_SIZE);
+            inFlight.acquireUninterruptibly();
+            Platform.runLater(() -> {
+                try {
+                    expenseManager.appendLoaded(ready);
+                    loadedExpenses.set(expenseManager.getExpenses().size());
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.SEVERE, "Could not append loaded expenses", e);
+                    loaded.completeExceptionally(e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+    }
+}
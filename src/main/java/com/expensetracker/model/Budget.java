@@ -7,9 +7,14 @@ import java.util.UUID;
 
 public class Budget {
     private final String id;
-    private final SimpleStringProperty category;
-    private final SimpleDoubleProperty budgetAmount;
-    private final SimpleStringProperty period; // e.g., "MONTHLY", "WEEKLY"
+    private final String category;
+    private final double budgetAmount;
+    private final String period; // e.g., "MONTHLY", "WEEKLY"
+
+    // Created lazily on first xxxProperty() call
+    private SimpleStringProperty categoryProperty;
+    private SimpleDoubleProperty budgetAmountProperty;
+    private SimpleStringProperty periodProperty;
 
     public Budget(String category, double budgetAmount, String period) {
         this(UUID.randomUUID().toString(), category, budgetAmount, period);
@@ -17,9 +22,9 @@ public class Budget {
 
     public Budget(String id, String category, double budgetAmount, String period) {
         this.id = id;
-        this.category = new SimpleStringProperty(category);
-        this.budgetAmount = new SimpleDoubleProperty(budgetAmount);
-        this.period = new SimpleStringProperty(period);
+        this.category = category;
+        this.budgetAmount = budgetAmount;
+        this.period = period;
     }
 
     public String getId() {
@@ -27,31 +32,40 @@ public class Budget {
     }
 
     public String getCategory() {
-        return category.get();
+        return categoryProperty == null ? category : categoryProperty.get();
     }
 
     public SimpleStringProperty categoryProperty() {
-        return category;
+        if (categoryProperty == null) {
+            categoryProperty = new SimpleStringProperty(this, "category", category);
+        }
+        return categoryProperty;
     }
 
     public double getBudgetAmount() {
-        return budgetAmount.get();
+        return budgetAmountProperty == null ? budgetAmount : budgetAmountProperty.get();
     }
 
     public SimpleDoubleProperty budgetAmountProperty() {
-        return budgetAmount;
+        if (budgetAmountProperty == null) {
+            budgetAmountProperty = new SimpleDoubleProperty(this, "budgetAmount", budgetAmount);
+        }
+        return budgetAmountProperty;
     }
 
     public String getPeriod() {
-        return period.get();
+        return periodProperty == null ? period : periodProperty.get();
     }
 
     public SimpleStringProperty periodProperty() {
-        return period;
+        if (periodProperty == null) {
+            periodProperty = new SimpleStringProperty(this, "period", period);
+        }
+        return periodProperty;
     }
 
     @Override
     public String toString() {
-        return String.format("%s: K %.2f (%s)", category.get(), budgetAmount.get(), period.get());
+        return String.format("%s: K %.2f (%s)", getCategory(), getBudgetAmount(), getPeriod());
     }
 }
@@ -14,7 +14,11 @@ public class Category {
     private String icon;
 
     public Category(String userId, String name, String color, String icon) {
-        this.id = UUID.randomUUID().toString();
+        this(UUID.randomUUID().toString(), userId, name, color, icon);
+    }
+
+    public Category(String id, String userId, String name, String color, String icon) {
+        this.id = id;
         this.userId = userId;
         this.name = name;
         this.color = color;
@@ -3,38 +3,70 @@ package com.expensetracker.model;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleStringProperty;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 public class CategoryReportData {
-    private final SimpleStringProperty categoryName;
-    private final SimpleDoubleProperty totalAmount;
-    private final SimpleDoubleProperty percentage;
+    private final String categoryName;
+    private final double totalAmount;
+    private final double percentage;
+
+    // Created lazily on first xxxProperty() call
+    private SimpleStringProperty categoryNameProperty;
+    private SimpleDoubleProperty totalAmountProperty;
+    private SimpleDoubleProperty percentageProperty;
 
     public CategoryReportData(String categoryName, double totalAmount, double percentage) {
-        this.categoryName = new SimpleStringProperty(categoryName);
-        this.totalAmount = new SimpleDoubleProperty(totalAmount);
-        this.percentage = new SimpleDoubleProperty(percentage);
+        this.categoryName = categoryName;
+        this.totalAmount = totalAmount;
+        this.percentage = percentage;
+    }
+
+    /** One row per category, with its share of the grand total, from totals in cents. */
+    public static List<CategoryReportData> fromTotals(Map<String, Long> centsByCategory) {
+        long grandTotal = 0;
+        for (long cents : centsByCategory.values()) {
+            grandTotal += cents;
+        }
+        List<CategoryReportData> rows = new ArrayList<>(centsByCategory.size());
+        for (Map.Entry<String, Long> entry : centsByCategory.entrySet()) {
+            double percentage = grandTotal > 0 ? entry.getValue() * 100.0 / grandTotal : 0;
+            rows.add(new CategoryReportData(entry.getKey(), entry.getValue() / 100.0, percentage));
+        }
+        return rows;
     }
 
     public String getCategoryName() {
-        return categoryName.get();
+        return categoryNameProperty == null ? categoryName : categoryNameProperty.get();
     }
 
     public SimpleStringProperty categoryNameProperty() {
-        return categoryName;
+        if (categoryNameProperty == null) {
+            categoryNameProperty = new SimpleStringProperty(this, "categoryName", categoryName);
+        }
+        return categoryNameProperty;
     }
 
     public double getTotalAmount() {
-        return totalAmount.get();
+        return totalAmountProperty == null ? totalAmount : totalAmountProperty.get();
     }
 
     public SimpleDoubleProperty totalAmountProperty() {
-        return totalAmount;
+        if (totalAmountProperty == null) {
+            totalAmountProperty = new SimpleDoubleProperty(this, "totalAmount", totalAmount);
+        }
+        return totalAmountProperty;
     }
 
     public double getPercentage() {
-        return percentage.get();
+        return percentageProperty == null ? percentage : percentageProperty.get();
     }
 
     public SimpleDoubleProperty percentageProperty() {
-        return percentage;
+        if (percentageProperty == null) {
+            percentageProperty = new SimpleDoubleProperty(this, "percentage", percentage);
+        }
+        return percentageProperty;
     }
 }
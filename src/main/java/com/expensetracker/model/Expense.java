@@ -6,126 +6,99 @@ import javafx.beans.property.SimpleStringProperty;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 
+import java.util.Objects;
 import java.util.UUID;
 
-
-
+/**
+ * An expense keeps its values in plain fields. The JavaFX property objects are only created when
+ * something binds to them, which in practice means the rows a TableView is currently showing.
+ */
 public class Expense {
 
-
-
-    private final String id;
-
-    private final SimpleDoubleProperty amount;
-
-    private final SimpleStringProperty category;
-
-    private final SimpleObjectProperty<LocalDate> date;
-
-    private final SimpleStringProperty description;
-
-
-
     private static final DateTimeFormatter CSV_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
+    private final String id;
+    private final double amount;
+    private final String category;
+    private final LocalDate date;
+    private final String description;
+
+    // Created on first xxxProperty() call; once present they hold the current value
+    private SimpleDoubleProperty amountProperty;
+    private SimpleStringProperty categoryProperty;
+    private SimpleObjectProperty<LocalDate> dateProperty;
+    private SimpleStringProperty descriptionProperty;
+
+    // Constructor with LocalDate for DatePicker and programmatic creation
+    public Expense(double amount, String category, LocalDate date, String description) {
+        this(UUID.randomUUID().toString(), amount, category, date, description);
+    }
+
+    // Constructor for loading from CSV (String date)
+    public Expense(double amount, String category, String dateString, String description) {
+        this(UUID.randomUUID().toString(), amount, category, LocalDate.parse(dateString, CSV_FORMATTER), description);
+    }
+
+    // Full constructor including ID
+    public Expense(String id, double amount, String category, LocalDate date, String description) {
+        this.id = id;
+        this.amount = amount;
+        this.category = category;
+        this.date = date;
+        this.description = description == null ? "" : description;
+    }
 
-
-        // Constructor with LocalDate for DatePicker and programmatic creation
-
-
-
-        public Expense(double amount, String category, LocalDate date, String description) {
-
-
-
-            this(UUID.randomUUID().toString(), amount, category, date, description);
-
-
-
+    // Properties for TableView bindings
+    public SimpleDoubleProperty amountProperty() {
+        if (amountProperty == null) {
+            amountProperty = new SimpleDoubleProperty(this, "amount", amount);
         }
+        return amountProperty;
+    }
 
-
-
-    
-
-
-
-        // Constructor for loading from CSV (String date)
-
-
-
-        public Expense(double amount, String category, String dateString, String description) {
-
-
-
-            this(UUID.randomUUID().toString(), amount, category, LocalDate.parse(dateString, CSV_FORMATTER), description);
-
-
-
+    public SimpleStringProperty categoryProperty() {
+        if (categoryProperty == null) {
+            categoryProperty = new SimpleStringProperty(this, "category", category);
         }
+        return categoryProperty;
+    }
 
-
-
-    
-
-
-
-        // Full constructor including ID
-
-
-
-        public Expense(String id, double amount, String category, LocalDate date, String description) {
-
-
-
-            this.id = id;
-
-
-
-            this.amount = new SimpleDoubleProperty(amount);
-
-
-
-            this.category = new SimpleStringProperty(category);
-
-
-
-            this.date = new SimpleObjectProperty<>(date);
-
-
-
-            this.description = new SimpleStringProperty(description == null ? "" : description);
-
-
-
+    public SimpleObjectProperty<LocalDate> dateProperty() {
+        if (dateProperty == null) {
+            dateProperty = new SimpleObjectProperty<>(this, "date", date);
         }
+        return dateProperty;
+    }
 
-
-
-    // Properties for TableView bindings
-
-    public SimpleDoubleProperty amountProperty() { return amount; }
-
-    public SimpleStringProperty categoryProperty() { return category; }
-
-    public SimpleObjectProperty<LocalDate> dateProperty() { return date; }
-
-    public SimpleStringProperty descriptionProperty() { return description; }
-
-
+    public SimpleStringProperty descriptionProperty() {
+        if (descriptionProperty == null) {
+            descriptionProperty = new SimpleStringProperty(this, "description", description);
+        }
+        return descriptionProperty;
+    }
 
     // Getters for logic
-
     public String getId() { return id; }
-
-    public double getAmount() { return amount.get(); }
-
-    public String getCategory() { return category.get(); }
-
-    public LocalDate getDate() { return date.get(); }
-
-    public String getDescription() { return description.get(); }
-
-
-
+    public double getAmount() { return amountProperty == null ? amount : amountProperty.get(); }
+    public String getCategory() { return categoryProperty == null ? category : categoryProperty.get(); }
+    public LocalDate getDate() { return dateProperty == null ? date : dateProperty.get(); }
+    public String getDescription() { return descriptionProperty == null ? description : descriptionProperty.get(); }
+
+    // Value equality: the store-backed expense list builds a new object each time a row is read again
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Expense)) return false;
+        Expense other = (Expense) o;
+        return Objects.equals(getId(), other.getId())
+                && Double.compare(getAmount(), other.getAmount()) == 0
+                && Objects.equals(getCategory(), other.getCategory())
+                && Objects.equals(getDate(), other.getDate())
+                && Objects.equals(getDescription(), other.getDescription());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
 }
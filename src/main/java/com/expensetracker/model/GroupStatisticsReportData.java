@@ -0,0 +1,107 @@
+package com.expensetracker.model;
+
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+
+/**
+ * A report row for one group (category, month, weekday or description) with distribution
+ * statistics on top of the total and share from {@link CategoryReportData}.
+ */
+public class GroupStatisticsReportData extends CategoryReportData {
+    private final int count;
+    private final double mean;
+    private final double variance;
+    private final double median;
+    private final double p90;
+    private final double p99;
+
+    // Created lazily on first xxxProperty() call
+    private SimpleIntegerProperty countProperty;
+    private SimpleDoubleProperty meanProperty;
+    private SimpleDoubleProperty standardDeviationProperty;
+    private SimpleDoubleProperty medianProperty;
+    private SimpleDoubleProperty p90Property;
+    private SimpleDoubleProperty p99Property;
+
+    public GroupStatisticsReportData(String groupName, double totalAmount, double percentage, int count,
+                                     double mean, double variance, double median, double p90, double p99) {
+        super(groupName, totalAmount, percentage);
+        this.count = count;
+        this.mean = mean;
+        this.variance = variance;
+        this.median = median;
+        this.p90 = p90;
+        this.p99 = p99;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public SimpleIntegerProperty countProperty() {
+        if (countProperty == null) {
+            countProperty = new SimpleIntegerProperty(this, "count", count);
+        }
+        return countProperty;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public SimpleDoubleProperty meanProperty() {
+        if (meanProperty == null) {
+            meanProperty = new SimpleDoubleProperty(this, "mean", mean);
+        }
+        return meanProperty;
+    }
+
+    // Sample variance; NaN for a group of one
+    public double getVariance() {
+        return variance;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(variance);
+    }
+
+    public SimpleDoubleProperty standardDeviationProperty() {
+        if (standardDeviationProperty == null) {
+            standardDeviationProperty = new SimpleDoubleProperty(this, "standardDeviation", getStandardDeviation());
+        }
+        return standardDeviationProperty;
+    }
+
+    public double getMedian() {
+        return median;
+    }
+
+    public SimpleDoubleProperty medianProperty() {
+        if (medianProperty == null) {
+            medianProperty = new SimpleDoubleProperty(this, "median", median);
+        }
+        return medianProperty;
+    }
+
+    public double getP90() {
+        return p90;
+    }
+
+    public SimpleDoubleProperty p90Property() {
+        if (p90Property == null) {
+            p90Property = new SimpleDoubleProperty(this, "p90", p90);
+        }
+        return p90Property;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    public SimpleDoubleProperty p99Property() {
+        if (p99Property == null) {
+            p99Property = new SimpleDoubleProperty(this, "p99", p99);
+        }
+        return p99Property;
+    }
+}
@@ -0,0 +1,496 @@
+package com.expensetracker.model;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * When a recurring expense falls due. This is the value of {@link RecurringExpense#getFrequency()},
+ * written as a subset of the iCalendar RRULE syntax:
+ * <pre>
+ * MONTHLY                                            plain keywords, as before
+ * FREQ=WEEKLY;INTERVAL=2                             every other week
+ * FREQ=MONTHLY;BYDAY=2TU                             second Tuesday of each month
+ * FREQ=MONTHLY;BYDAY=MO,TU,WE,TH,FR;BYSETPOS=-1      last business day of each month
+ * FREQ=MONTHLY;BYMONTHDAY=-1;UNTIL=2030-12-31        last day of each month until 2030
+ * FREQ=DAILY;BYDAY=MO,TU,WE,TH,FR;COUNT=20           the next 20 weekdays
+ * </pre>
+ * Occurrences are the dates on or after the start date that match the rule. Time is divided into
+ * periods (days, weeks from Monday, months or years) counted from the start date's period, and
+ * every INTERVAL-th period is active. The dates within one period are computed directly. Finding
+ * the occurrence after a given date jumps straight to that date's period, so the cost does not
+ * depend on how far the date is from the start.
+ * <p>
+ * Without BY* parts, a monthly rule keeps the start date's day of month and clamps it to the
+ * length of shorter months. A yearly rule treats February 29 the same way. BYMONTHDAY follows
+ * RFC 5545 instead: a day a month does not have is skipped.
+ */
+public final class RecurrenceRule {
+
+    public enum Frequency { DAILY, WEEKLY, MONTHLY, YEARLY }
+
+    // A rule that cannot produce a date within this many consecutive periods is taken to be exhausted
+    private static final int MAX_EMPTY_PERIODS = 1000;
+
+    private static final Map<String, RecurrenceRule> CACHE = new ConcurrentHashMap<>();
+
+    private final String text;
+    private final Frequency frequency;
+    private final int interval;
+    // BYDAY entries; ordinal 0 means every such weekday in the period
+    private final DayOfWeek[] byDay;
+    private final int[] byDayOrdinal;
+    private final int[] byMonthDay;
+    private final int[] bySetPos;
+    private final LocalDate until;
+    private final int count;
+    // Last occurrence per start date for COUNT rules, found once by walking from the start
+    private final Map<LocalDate, LocalDate> countEnds = new ConcurrentHashMap<>();
+
+    private RecurrenceRule(String text, Frequency frequency, int interval, DayOfWeek[] byDay, int[] byDayOrdinal,
+                           int[] byMonthDay, int[] bySetPos, LocalDate until, int count) {
+        this.text = text;
+        this.frequency = frequency;
+        this.interval = interval;
+        this.byDay = byDay;
+        this.byDayOrdinal = byDayOrdinal;
+        this.byMonthDay = byMonthDay;
+        this.bySetPos = bySetPos;
+        this.until = until;
+        this.count = count;
+    }
+
+    /**
+     * Parses a frequency value. Parsed rules are cached, since the same few values are used by
+     * many recurring expenses.
+     *
+     * @throws IllegalArgumentException if the value is not a supported rule
+     */
+    public static RecurrenceRule parse(String text) {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Recurrence rule is empty");
+        }
+        RecurrenceRule cached = CACHE.get(text);
+        if (cached != null) return cached;
+        RecurrenceRule rule = doParse(text);
+        CACHE.putIfAbsent(text, rule);
+        return rule;
+    }
+
+    private static RecurrenceRule doParse(String text) {
+        String value = text.trim().toUpperCase(Locale.ROOT);
+        if (value.startsWith("RRULE:")) {
+            value = value.substring("RRULE:".length());
+        }
+        if (!value.contains("=")) {
+            return new RecurrenceRule(text, frequencyOf(value), 1, new DayOfWeek[0], new int[0], new int[0], new int[0], null, 0);
+        }
+
+        Frequency frequency = null;
+        int interval = 1;
+        List<DayOfWeek> days = new ArrayList<>();
+        List<Integer> ordinals = new ArrayList<>();
+        int[] byMonthDay = new int[0];
+        int[] bySetPos = new int[0];
+        LocalDate until = null;
+        int count = 0;
+        for (String part : value.split(";")) {
+            if (part.isEmpty()) continue;
+            int eq = part.indexOf('=');
+            if (eq <= 0) throw new IllegalArgumentException("Malformed rule part '" + part + "' in " + text);
+            String name = part.substring(0, eq);
+            String argument = part.substring(eq + 1);
+            switch (name) {
+                case "FREQ":
+                    frequency = frequencyOf(argument);
+                    break;
+                case "INTERVAL":
+                    interval = positive(name, argument, text);
+                    break;
+                case "BYDAY":
+                    for (String day : argument.split(",")) {
+                        parseDay(day, text, days, ordinals);
+                    }
+                    break;
+                case "BYMONTHDAY":
+                    byMonthDay = parseInts(name, argument, 31, text);
+                    break;
+                case "BYSETPOS":
+                    bySetPos = parseInts(name, argument, 366, text);
+                    break;
+                case "UNTIL":
+                    until = parseDate(argument, text);
+                    break;
+                case "COUNT":
+                    count = positive(name, argument, text);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported rule part " + name + " in " + text);
+            }
+        }
+        if (frequency == null) throw new IllegalArgumentException("Rule has no FREQ: " + text);
+        boolean ordinalDays = ordinals.stream().anyMatch(o -> o != 0);
+        if (frequency == Frequency.YEARLY && (!days.isEmpty() || byMonthDay.length > 0)) {
+            throw new IllegalArgumentException("BYDAY and BYMONTHDAY are not supported for yearly rules: " + text);
+        }
+        if (frequency != Frequency.MONTHLY && (byMonthDay.length > 0 || ordinalDays)) {
+            throw new IllegalArgumentException("BYMONTHDAY and numbered BYDAY need FREQ=MONTHLY: " + text);
+        }
+        if (ordinalDays && byMonthDay.length > 0) {
+            throw new IllegalArgumentException("Numbered BYDAY cannot be combined with BYMONTHDAY: " + text);
+        }
+        if (bySetPos.length > 0 && days.isEmpty() && byMonthDay.length == 0) {
+            throw new IllegalArgumentException("BYSETPOS needs BYDAY or BYMONTHDAY: " + text);
+        }
+        return new RecurrenceRule(text, frequency, interval,
+                days.toArray(new DayOfWeek[0]), ordinals.stream().mapToInt(Integer::intValue).toArray(),
+                byMonthDay, bySetPos, until, count);
+    }
+
+    private static Frequency frequencyOf(String value) {
+        try {
+            return Frequency.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown frequency " + value, e);
+        }
+    }
+
+    private static void parseDay(String day, String text, List<DayOfWeek> days, List<Integer> ordinals) {
+        if (day.length() < 2) throw new IllegalArgumentException("Malformed BYDAY entry '" + day + "' in " + text);
+        String code = day.substring(day.length() - 2);
+        String ordinal = day.substring(0, day.length() - 2);
+        DayOfWeek dayOfWeek = null;
+        for (DayOfWeek candidate : DayOfWeek.values()) {
+            if (candidate.name().startsWith(code)) {
+                dayOfWeek = candidate;
+            }
+        }
+        if (dayOfWeek == null) throw new IllegalArgumentException("Unknown weekday '" + code + "' in " + text);
+        int n = 0;
+        if (!ordinal.isEmpty()) {
+            try {
+                n = Integer.parseInt(ordinal.startsWith("+") ? ordinal.substring(1) : ordinal);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed BYDAY entry '" + day + "' in " + text, e);
+            }
+            if (n == 0 || Math.abs(n) > 5) throw new IllegalArgumentException("BYDAY position out of range in " + text);
+        }
+        days.add(dayOfWeek);
+        ordinals.add(n);
+    }
+
+    private static int[] parseInts(String name, String argument, int limit, String text) {
+        String[] values = argument.split(",");
+        int[] result = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            try {
+                result[i] = Integer.parseInt(values[i]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed " + name + " in " + text, e);
+            }
+            if (result[i] == 0 || Math.abs(result[i]) > limit) {
+                throw new IllegalArgumentException(name + " value out of range in " + text);
+            }
+        }
+        return result;
+    }
+
+    private static int positive(String name, String argument, String text) {
+        try {
+            int value = Integer.parseInt(argument);
+            if (value > 0) return value;
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(name + " must be a positive number in " + text);
+    }
+
+    private static LocalDate parseDate(String argument, String text) {
+        try {
+            // Accepts 2030-12-31 as well as the RFC form 20301231 or 20301231T235959Z
+            if (argument.length() >= 8 && Character.isDigit(argument.charAt(4))) {
+                return LocalDate.of(Integer.parseInt(argument.substring(0, 4)),
+                        Integer.parseInt(argument.substring(4, 6)), Integer.parseInt(argument.substring(6, 8)));
+            }
+            return LocalDate.parse(argument);
+        } catch (DateTimeException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed UNTIL date in " + text, e);
+        }
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    /** The last date the rule may produce, from UNTIL; null if unbounded. COUNT is not reflected. */
+    public LocalDate getUntil() {
+        return until;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    // --- Occurrences ---
+
+    /** The first occurrence on or after {@code date}, or null if the rule has ended by then. */
+    public LocalDate onOrAfter(LocalDate start, LocalDate date) {
+        LocalDate end = lastAllowed(start);
+        return scan(start, date.isBefore(start) ? start : date, end);
+    }
+
+    /** The first occurrence strictly after {@code date}, or null if the rule has ended by then. */
+    public LocalDate after(LocalDate start, LocalDate date) {
+        return onOrAfter(start, date.plusDays(1));
+    }
+
+    /** Calls {@code action} with every occurrence in [from, to], in date order. */
+    public void forEachBetween(LocalDate start, LocalDate from, LocalDate to, Consumer<LocalDate> action) {
+        LocalDate end = lastAllowed(start);
+        LocalDate limit = end != null && end.isBefore(to) ? end : to;
+        LocalDate first = from.isBefore(start) ? start : from;
+        if (first.isAfter(limit)) return;
+        long period = Math.max(0, periodIndex(start, first));
+        List<LocalDate> dates = new ArrayList<>(31);
+        int empty = 0;
+        while (!periodStart(start, period).isAfter(limit)) {
+            candidates(start, period, dates);
+            boolean found = false;
+            for (LocalDate date : dates) {
+                if (date.isAfter(limit)) return;
+                if (!date.isBefore(first)) {
+                    action.accept(date);
+                }
+                found = true;
+            }
+            if (found) {
+                empty = 0;
+            } else if (++empty > MAX_EMPTY_PERIODS) {
+                return;
+            }
+            period++;
+        }
+    }
+
+    /** All occurrences in [from, to]. */
+    public List<LocalDate> between(LocalDate start, LocalDate from, LocalDate to) {
+        List<LocalDate> dates = new ArrayList<>();
+        forEachBetween(start, from, to, dates::add);
+        return dates;
+    }
+
+    /** Number of occurrences in [from, to]. */
+    public long countBetween(LocalDate start, LocalDate from, LocalDate to) {
+        if (byDay.length == 0 && byMonthDay.length == 0 && count == 0) {
+            return countPlain(start, from, to);
+        }
+        long[] n = new long[1];
+        forEachBetween(start, from, to, date -> n[0]++);
+        return n[0];
+    }
+
+    /** Closed form for rules with exactly one occurrence per active period. */
+    private long countPlain(LocalDate start, LocalDate from, LocalDate to) {
+        LocalDate first = onOrAfter(start, from);
+        LocalDate limit = until != null && until.isBefore(to) ? until : to;
+        if (first == null || first.isAfter(limit)) return 0;
+        long lastPeriod = periodIndex(start, limit);
+        // The limit's period may end before its own occurrence falls
+        List<LocalDate> dates = new ArrayList<>(1);
+        candidates(start, lastPeriod, dates);
+        if (dates.isEmpty() || dates.get(0).isAfter(limit)) {
+            lastPeriod--;
+        }
+        return lastPeriod - periodIndex(start, first) + 1;
+    }
+
+    private LocalDate scan(LocalDate start, LocalDate from, LocalDate end) {
+        if (end != null && from.isAfter(end)) return null;
+        long period = Math.max(0, periodIndex(start, from));
+        List<LocalDate> dates = new ArrayList<>(31);
+        for (int empty = 0; empty <= MAX_EMPTY_PERIODS; period++) {
+            if (end != null && periodStart(start, period).isAfter(end)) return null;
+            candidates(start, period, dates);
+            for (LocalDate date : dates) {
+                if (!date.isBefore(from)) {
+                    return end != null && date.isAfter(end) ? null : date;
+                }
+            }
+            empty = dates.isEmpty() ? empty + 1 : 0;
+        }
+        return null;
+    }
+
+    /** The last date an occurrence may fall on, from UNTIL and COUNT; null if unbounded. */
+    private LocalDate lastAllowed(LocalDate start) {
+        if (count == 0) return until;
+        return countEnds.computeIfAbsent(start, s -> {
+            // Walk the first COUNT occurrences once; later calls for this start date reuse the result
+            LocalDate date = scan(s, s, until);
+            for (int i = 1; i < count && date != null; i++) {
+                LocalDate next = scan(s, date.plusDays(1), until);
+                if (next == null) break;
+                date = next;
+            }
+            return date == null ? s.minusDays(1) : date;
+        });
+    }
+
+    /** Index of the active period containing or following {@code date}; negative before the start. */
+    private long periodIndex(LocalDate start, LocalDate date) {
+        long units;
+        switch (frequency) {
+            case DAILY:
+                units = ChronoUnit.DAYS.between(start, date);
+                break;
+            case WEEKLY:
+                units = ChronoUnit.DAYS.between(monday(start), monday(date)) / 7;
+                break;
+            case MONTHLY:
+                units = ChronoUnit.MONTHS.between(YearMonth.from(start), YearMonth.from(date));
+                break;
+            default:
+                units = (long) date.getYear() - start.getYear();
+                break;
+        }
+        // Round up to the next active period when the date falls between them
+        return Math.floorDiv(units + interval - 1, interval);
+    }
+
+    private LocalDate periodStart(LocalDate start, long period) {
+        long units = period * interval;
+        switch (frequency) {
+            case DAILY:
+                return start.plusDays(units);
+            case WEEKLY:
+                return monday(start).plusWeeks(units);
+            case MONTHLY:
+                return start.withDayOfMonth(1).plusMonths(units);
+            default:
+                return start.withDayOfYear(1).plusYears(units);
+        }
+    }
+
+    /** Fills {@code out} with the occurrences in the given active period, sorted. */
+    private void candidates(LocalDate start, long period, List<LocalDate> out) {
+        out.clear();
+        LocalDate first = periodStart(start, period);
+        switch (frequency) {
+            case DAILY:
+                if (byDay.length == 0 || contains(byDay, first.getDayOfWeek())) {
+                    out.add(first);
+                }
+                break;
+            case WEEKLY:
+                if (byDay.length == 0) {
+                    out.add(first.with(TemporalAdjusters.nextOrSame(start.getDayOfWeek())));
+                } else {
+                    for (DayOfWeek day : DayOfWeek.values()) {
+                        if (contains(byDay, day)) {
+                            out.add(first.with(TemporalAdjusters.nextOrSame(day)));
+                        }
+                    }
+                }
+                break;
+            case MONTHLY:
+                monthCandidates(start, YearMonth.from(first), out);
+                break;
+            default:
+                out.add(first.withDayOfYear(1).withMonth(start.getMonthValue())
+                        .withDayOfMonth(Math.min(start.getDayOfMonth(), YearMonth.of(first.getYear(), start.getMonth()).lengthOfMonth())));
+                break;
+        }
+        applySetPos(out);
+        out.removeIf(date -> date.isBefore(start));
+    }
+
+    private void monthCandidates(LocalDate start, YearMonth month, List<LocalDate> out) {
+        int length = month.lengthOfMonth();
+        if (byMonthDay.length > 0) {
+            boolean[] days = new boolean[length + 1];
+            for (int day : byMonthDay) {
+                int dayOfMonth = day > 0 ? day : length + day + 1;
+                if (dayOfMonth >= 1 && dayOfMonth <= length) days[dayOfMonth] = true;
+            }
+            for (int d = 1; d <= length; d++) {
+                if (days[d] && (byDay.length == 0 || contains(byDay, month.atDay(d).getDayOfWeek()))) {
+                    out.add(month.atDay(d));
+                }
+            }
+        } else if (byDay.length > 0) {
+            boolean[] days = new boolean[length + 1];
+            for (int i = 0; i < byDay.length; i++) {
+                LocalDate firstOfKind = month.atDay(1).with(TemporalAdjusters.nextOrSame(byDay[i]));
+                int firstDay = firstOfKind.getDayOfMonth();
+                int ordinal = byDayOrdinal[i];
+                if (ordinal == 0) {
+                    for (int d = firstDay; d <= length; d += 7) days[d] = true;
+                } else {
+                    int occurrences = (length - firstDay) / 7 + 1;
+                    int index = ordinal > 0 ? ordinal - 1 : occurrences + ordinal;
+                    if (index >= 0 && index < occurrences) days[firstDay + 7 * index] = true;
+                }
+            }
+            for (int d = 1; d <= length; d++) {
+                if (days[d]) out.add(month.atDay(d));
+            }
+        } else {
+            out.add(month.atDay(Math.min(start.getDayOfMonth(), length)));
+        }
+    }
+
+    private void applySetPos(List<LocalDate> dates) {
+        if (bySetPos.length == 0 || dates.isEmpty()) return;
+        int size = dates.size();
+        boolean[] keep = new boolean[size];
+        for (int pos : bySetPos) {
+            int index = pos > 0 ? pos - 1 : size + pos;
+            if (index >= 0 && index < size) keep[index] = true;
+        }
+        List<LocalDate> selected = new ArrayList<>(bySetPos.length);
+        for (int i = 0; i < size; i++) {
+            if (keep[i]) selected.add(dates.get(i));
+        }
+        dates.clear();
+        dates.addAll(selected);
+    }
+
+    private static boolean contains(DayOfWeek[] days, DayOfWeek day) {
+        for (DayOfWeek d : days) {
+            if (d == day) return true;
+        }
+        return false;
+    }
+
+    private static LocalDate monday(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof RecurrenceRule && text.equals(((RecurrenceRule) o).text);
+    }
+
+    @Override
+    public int hashCode() {
+        return text.hashCode();
+    }
+}
@@ -9,23 +9,38 @@ import java.util.UUID;
 
 public class RecurringExpense {
     private final String id;
-    private final SimpleDoubleProperty amount;
-    private final SimpleStringProperty category;
-    private final SimpleObjectProperty<LocalDate> startDate;
-    private final SimpleStringProperty frequency; // e.g., "DAILY", "WEEKLY", "MONTHLY", "YEARLY"
-    private final SimpleStringProperty description;
+    private final double amount;
+    private final String category;
+    private final LocalDate startDate;
+    private final String frequency; // e.g., "DAILY", "WEEKLY", "MONTHLY", "YEARLY"
+    private final String description;
+    // Date of the last occurrence turned into an expense; null until the first one is generated
+    private final LocalDate lastGenerated;
+
+    // Created lazily on first xxxProperty() call
+    private SimpleDoubleProperty amountProperty;
+    private SimpleStringProperty categoryProperty;
+    private SimpleObjectProperty<LocalDate> startDateProperty;
+    private SimpleStringProperty frequencyProperty;
+    private SimpleStringProperty descriptionProperty;
 
     public RecurringExpense(double amount, String category, LocalDate startDate, String frequency, String description) {
         this(UUID.randomUUID().toString(), amount, category, startDate, frequency, description);
     }
 
     public RecurringExpense(String id, double amount, String category, LocalDate startDate, String frequency, String description) {
+        this(id, amount, category, startDate, frequency, description, null);
+    }
+
+    public RecurringExpense(String id, double amount, String category, LocalDate startDate, String frequency,
+                            String description, LocalDate lastGenerated) {
         this.id = id;
-        this.amount = new SimpleDoubleProperty(amount);
-        this.category = new SimpleStringProperty(category);
-        this.startDate = new SimpleObjectProperty<>(startDate);
-        this.frequency = new SimpleStringProperty(frequency);
-        this.description = new SimpleStringProperty(description == null ? "" : description);
+        this.amount = amount;
+        this.category = category;
+        this.startDate = startDate;
+        this.frequency = frequency;
+        this.description = description == null ? "" : description;
+        this.lastGenerated = lastGenerated;
     }
 
     public String getId() {
@@ -33,47 +48,71 @@ public class RecurringExpense {
     }
 
     public double getAmount() {
-        return amount.get();
+        return amountProperty == null ? amount : amountProperty.get();
     }
 
     public SimpleDoubleProperty amountProperty() {
-        return amount;
+        if (amountProperty == null) {
+            amountProperty = new SimpleDoubleProperty(this, "amount", amount);
+        }
+        return amountProperty;
     }
 
     public String getCategory() {
-        return category.get();
+        return categoryProperty == null ? category : categoryProperty.get();
     }
 
     public SimpleStringProperty categoryProperty() {
-        return category;
+        if (categoryProperty == null) {
+            categoryProperty = new SimpleStringProperty(this, "category", category);
+        }
+        return categoryProperty;
     }
 
     public LocalDate getStartDate() {
-        return startDate.get();
+        return startDateProperty == null ? startDate : startDateProperty.get();
     }
 
     public SimpleObjectProperty<LocalDate> startDateProperty() {
-        return startDate;
+        if (startDateProperty == null) {
+            startDateProperty = new SimpleObjectProperty<>(this, "startDate", startDate);
+        }
+        return startDateProperty;
     }
 
     public String getFrequency() {
-        return frequency.get();
+        return frequencyProperty == null ? frequency : frequencyProperty.get();
     }
 
     public SimpleStringProperty frequencyProperty() {
-        return frequency;
+        if (frequencyProperty == null) {
+            frequencyProperty = new SimpleStringProperty(this, "frequency", frequency);
+        }
+        return frequencyProperty;
     }
 
     public String getDescription() {
-        return description.get();
+        return descriptionProperty == null ? description : descriptionProperty.get();
     }
 
     public SimpleStringProperty descriptionProperty() {
-        return description;
+        if (descriptionProperty == null) {
+            descriptionProperty = new SimpleStringProperty(this, "description", description);
+        }
+        return descriptionProperty;
+    }
+
+    public LocalDate getLastGenerated() {
+        return lastGenerated;
+    }
+
+    /** A copy of this rule with its watermark moved to {@code lastGenerated}. */
+    public RecurringExpense withLastGenerated(LocalDate lastGenerated) {
+        return new RecurringExpense(id, getAmount(), getCategory(), getStartDate(), getFrequency(), getDescription(), lastGenerated);
     }
 
     @Override
     public String toString() {
-        return String.format("%.2f - %s (%s) starting %s", amount.get(), category.get(), frequency.get(), startDate.get());
+        return String.format("%.2f - %s (%s) starting %s", getAmount(), getCategory(), getFrequency(), getStartDate());
     }
 }
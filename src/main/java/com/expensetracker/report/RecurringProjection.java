@@ -0,0 +1,67 @@
+package com.expensetracker.report;
+
+import com.expensetracker.model.RecurrenceRule;
+import com.expensetracker.model.RecurringExpense;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * Future cost of recurring expenses, expanded from their {@link RecurrenceRule}s. Only occurrences
+ * that have not been generated yet are counted, so the projection adds to the recorded expenses
+ * rather than overlapping them. Amounts are in cents.
+ */
+public final class RecurringProjection {
+    private static final Logger LOGGER = Logger.getLogger(RecurringProjection.class.getName());
+
+    private RecurringProjection() {
+    }
+
+    /** Projected total per category for occurrences in [from, to]. */
+    public static Map<String, Long> categoryTotals(List<RecurringExpense> rules, LocalDate from, LocalDate to) {
+        Map<String, Long> totals = new LinkedHashMap<>();
+        for (RecurringExpense rule : rules) {
+            RecurrenceRule recurrence = recurrenceOf(rule);
+            if (recurrence == null) continue;
+            // Single-occurrence periods are counted in closed form rather than expanded
+            long occurrences = recurrence.countBetween(rule.getStartDate(), firstUngenerated(rule, from), to);
+            if (occurrences > 0) {
+                totals.merge(rule.getCategory(), occurrences * Math.round(rule.getAmount() * 100), Long::sum);
+            }
+        }
+        return totals;
+    }
+
+    /** Projected total per month for occurrences in [from, to]; months without any are left out. */
+    public static NavigableMap<YearMonth, Long> monthlyTotals(List<RecurringExpense> rules, LocalDate from, LocalDate to) {
+        NavigableMap<YearMonth, Long> totals = new TreeMap<>();
+        for (RecurringExpense rule : rules) {
+            RecurrenceRule recurrence = recurrenceOf(rule);
+            if (recurrence == null) continue;
+            long cents = Math.round(rule.getAmount() * 100);
+            recurrence.forEachBetween(rule.getStartDate(), firstUngenerated(rule, from), to,
+                    date -> totals.merge(YearMonth.from(date), cents, Long::sum));
+        }
+        return totals;
+    }
+
+    private static LocalDate firstUngenerated(RecurringExpense rule, LocalDate from) {
+        LocalDate last = rule.getLastGenerated();
+        return last != null && !last.isBefore(from) ? last.plusDays(1) : from;
+    }
+
+    private static RecurrenceRule recurrenceOf(RecurringExpense rule) {
+        try {
+            return RecurrenceRule.parse(rule.getFrequency());
+        } catch (IllegalArgumentException e) {
+            LOGGER.warning("Recurring expense " + rule.getId() + " left out of projection: " + e.getMessage());
+            return null;
+        }
+    }
+}
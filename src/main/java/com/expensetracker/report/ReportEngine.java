@@ -0,0 +1,269 @@
+package com.expensetracker.report;
+
+import com.expensetracker.model.GroupStatisticsReportData;
+import com.expensetracker.store.ExpenseQuery;
+import com.expensetracker.store.ExpenseStore;
+import com.expensetracker.store.QueryResult;
+import org.apache.commons.math3.stat.descriptive.AggregateSummaryStatistics;
+import org.apache.commons.math3.stat.descriptive.StatisticalSummary;
+import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
+import org.apache.commons.math3.stat.descriptive.rank.Percentile;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+
+/**
+ * Grouped statistics over the expenses matching a query. Rows are split into chunks that are
+ * aggregated in parallel on the common fork/join pool. Each chunk yields one partial per group,
+ * and partials merge pairwise on the way back up. Moments are merged with
+ * {@link AggregateSummaryStatistics}. Percentiles need every value, so partials also carry the
+ * amounts, which are concatenated and ranked once per group at the end.
+ * <p>
+ * Only copying the matching rows' group keys and amounts out of the store happens under its read
+ * lock. The query gives way to waiting writes and is retried, like the other background readers,
+ * and grouping and ranking run on the copy without the lock, so edits are never held up by them.
+ */
+public class ReportEngine {
+
+    /** What the rows are grouped by. */
+    public enum GroupBy {
+        CATEGORY("Category"),
+        MONTH("Month"),
+        WEEKDAY("Weekday"),
+        DESCRIPTION("Description");
+
+        private final String label;
+
+        GroupBy(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    // Below this many rows a chunk is aggregated directly instead of being split further
+    private static final int CHUNK_SIZE = 32_768;
+    // Reads that give way to writes before one makes the writes wait
+    private static final int YIELDING_ATTEMPTS = 3;
+
+    private final ForkJoinPool pool;
+
+    public ReportEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ReportEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Runs the query and groups the matching expenses, largest total first. Call this off the FX
+     * thread; it only takes the store's read lock to copy the matching rows.
+     */
+    public List<GroupStatisticsReportData> run(ExpenseStore store, ExpenseQuery query, GroupBy groupBy) {
+        Columns columns = read(store, query, groupBy);
+        Map<Integer, GroupPartial> groups = pool.invoke(new GroupTask(columns, 0, columns.keys.length, groupBy));
+        return finish(columns, groups, groupBy);
+    }
+
+    /**
+     * Runs the query and copies the matching rows, retrying while writes get in between. If writes
+     * keep getting in, the last attempt makes them wait for one query and copy.
+     */
+    private static Columns read(ExpenseStore store, ExpenseQuery query, GroupBy groupBy) {
+        for (int attempt = 0; attempt < YIELDING_ATTEMPTS; attempt++) {
+            try {
+                QueryResult result = store.queryRows(query, () -> false);
+                Columns columns = store.withReadLock(() -> store.getModCount() == result.getModCount()
+                        ? Columns.copy(store, result.getRows(), groupBy) : null);
+                if (columns != null) return columns;
+            } catch (CancellationException e) {
+                // A write was waiting; it goes first and the query runs again
+            }
+        }
+        return store.withReadLock(() -> Columns.copy(store, store.query(query), groupBy));
+    }
+
+    private static List<GroupStatisticsReportData> finish(Columns columns, Map<Integer, GroupPartial> groups, GroupBy groupBy) {
+        double grandTotal = 0;
+        for (GroupPartial partial : groups.values()) {
+            grandTotal += partial.summary().getSum();
+        }
+        double total = grandTotal;
+        // Ranking is the expensive part and independent per group
+        return groups.entrySet().parallelStream()
+                .map(entry -> entry.getValue().toReportData(label(columns, groupBy, entry.getKey()), total))
+                .sorted(Comparator.comparingDouble(GroupStatisticsReportData::getTotalAmount).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /** The group of a copied row, from its dictionary id or its epoch day. */
+    private static int key(int copied, GroupBy groupBy) {
+        switch (groupBy) {
+            case CATEGORY:
+            case DESCRIPTION:
+                return copied;
+            case MONTH: {
+                LocalDate date = LocalDate.ofEpochDay(copied);
+                return date.getYear() * 12 + date.getMonthValue() - 1;
+            }
+            default:
+                // 1970-01-01 was a Thursday
+                return (int) Math.floorMod(copied + 3L, 7L) + 1;
+        }
+    }
+
+    private static String label(Columns columns, GroupBy groupBy, int key) {
+        switch (groupBy) {
+            case CATEGORY:
+            case DESCRIPTION:
+                return columns.names[key];
+            case MONTH:
+                return String.format("%04d-%02d", Math.floorDiv(key, 12), Math.floorMod(key, 12) + 1);
+            default:
+                return DayOfWeek.of(key).getDisplayName(TextStyle.FULL, Locale.getDefault());
+        }
+    }
+
+    /**
+     * The matching rows copied out of the store: per row the dictionary id or epoch day that its
+     * group comes from, and its amount, plus the dictionary values the ids refer to.
+     */
+    private static final class Columns {
+        final int[] keys;
+        final long[] cents;
+        final String[] names;
+
+        private Columns(int[] keys, long[] cents, String[] names) {
+            this.keys = keys;
+            this.cents = cents;
+            this.names = names;
+        }
+
+        /** Must run under the store's read lock. */
+        static Columns copy(ExpenseStore store, int[] rows, GroupBy groupBy) {
+            int[] keys = new int[rows.length];
+            long[] cents = new long[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                int row = rows[i];
+                switch (groupBy) {
+                    case CATEGORY:
+                        keys[i] = store.getCategoryId(row);
+                        break;
+                    case DESCRIPTION:
+                        keys[i] = store.getDescriptionId(row);
+                        break;
+                    default:
+                        keys[i] = store.getEpochDay(row);
+                }
+                cents[i] = store.getCents(row);
+            }
+            String[] names = groupBy == GroupBy.CATEGORY ? store.getCategories().toArray()
+                    : groupBy == GroupBy.DESCRIPTION ? store.getDescriptions().toArray() : null;
+            return new Columns(keys, cents, names);
+        }
+    }
+
+    private static final class GroupTask extends RecursiveTask<Map<Integer, GroupPartial>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Columns columns;
+        private final int from;
+        private final int to;
+        private final GroupBy groupBy;
+
+        GroupTask(Columns columns, int from, int to, GroupBy groupBy) {
+            this.columns = columns;
+            this.from = from;
+            this.to = to;
+            this.groupBy = groupBy;
+        }
+
+        @Override
+        protected Map<Integer, GroupPartial> compute() {
+            if (to - from <= CHUNK_SIZE) {
+                Map<Integer, GroupPartial> groups = new HashMap<>();
+                for (int i = from; i < to; i++) {
+                    groups.computeIfAbsent(key(columns.keys[i], groupBy), k -> new GroupPartial())
+                            .add(columns.cents[i] / 100.0);
+                }
+                return groups;
+            }
+            int mid = (from + to) >>> 1;
+            GroupTask left = new GroupTask(columns, from, mid, groupBy);
+            left.fork();
+            Map<Integer, GroupPartial> right = new GroupTask(columns, mid, to, groupBy).compute();
+            Map<Integer, GroupPartial> merged = left.join();
+            right.forEach((key, partial) -> merged.merge(key, partial, GroupPartial::merge));
+            return merged;
+        }
+    }
+
+    /** Mergeable per-group state: running moments plus the raw amounts for percentiles. */
+    private static final class GroupPartial {
+        private SummaryStatistics running = new SummaryStatistics();
+        private StatisticalSummary merged;
+        private double[] values = new double[16];
+        private int count;
+
+        void add(double amount) {
+            running.addValue(amount);
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = amount;
+        }
+
+        StatisticalSummary summary() {
+            return merged != null ? merged : running;
+        }
+
+        GroupPartial merge(GroupPartial other) {
+            List<StatisticalSummary> parts = new ArrayList<>(2);
+            parts.add(summary());
+            parts.add(other.summary());
+            merged = AggregateSummaryStatistics.aggregate(parts);
+            running = null;
+
+            if (count + other.count > values.length) {
+                values = Arrays.copyOf(values, count + other.count);
+            }
+            System.arraycopy(other.values, 0, values, count, other.count);
+            count += other.count;
+            return this;
+        }
+
+        GroupStatisticsReportData toReportData(String name, double grandTotal) {
+            StatisticalSummary summary = summary();
+            Percentile percentile = new Percentile();
+            // Shared data lets the three evaluations reuse one partial sort
+            percentile.setData(values, 0, count);
+            double sum = summary.getSum();
+            return new GroupStatisticsReportData(
+                    name,
+                    sum,
+                    grandTotal > 0 ? sum / grandTotal * 100 : 0,
+                    count,
+                    summary.getMean(),
+                    summary.getVariance(),
+                    percentile.evaluate(50),
+                    percentile.evaluate(90),
+                    percentile.evaluate(99));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.expensetracker.store;
+
+import com.expensetracker.model.Expense;
+import javafx.collections.ListChangeListener;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Count, total, min/max and per-category sums of a list of expenses, kept up to date from the
+ * list's change events in O(changed rows). Amounts are held in cents.
+ * <p>
+ * A change that replaces the whole list because the filter changed would cost a walk over every
+ * row on the FX thread. For that case the replacement can be {@link #of computed} off the FX thread
+ * beforehand and handed over with {@link #expectReplacement}.
+ */
+public class ExpenseAggregates implements ListChangeListener<Expense> {
+    private final StringDictionary categories;
+
+    private int count;
+    private long totalCents;
+    // Amount in cents -> number of expenses with it; first and last key are min and max
+    private final TreeMap<Long, Integer> amounts = new TreeMap<>();
+    // Indexed by category dictionary id
+    private long[] categoryCents = new long[16];
+    private int[] categoryCounts = new int[16];
+
+    private ExpenseAggregates pendingReplacement;
+
+    public ExpenseAggregates(ExpenseStore store) {
+        this.categories = store.getCategories();
+    }
+
+    /** Aggregates of the given store rows, straight from the columns. Call under the store's read lock. */
+    static ExpenseAggregates of(ExpenseStore store, int[] rows) {
+        ExpenseAggregates aggregates = new ExpenseAggregates(store);
+        for (int row : rows) {
+            aggregates.add(store.getCents(row), store.getCategoryId(row));
+        }
+        return aggregates;
+    }
+
+    /**
+     * The next list change is the whole list being replaced by rows these aggregates were computed
+     * for; adopt them instead of walking the change.
+     */
+    public void expectReplacement(ExpenseAggregates replacement) {
+        pendingReplacement = replacement;
+    }
+
+    @Override
+    public void onChanged(Change<? extends Expense> c) {
+        if (pendingReplacement != null) {
+            adopt(pendingReplacement);
+            pendingReplacement = null;
+            return;
+        }
+        while (c.next()) {
+            if (c.wasPermutated() || c.wasUpdated()) {
+                continue;
+            }
+            for (Expense expense : c.getRemoved()) {
+                remove(Math.round(expense.getAmount() * 100), categories.find(expense.getCategory()));
+            }
+            for (Expense expense : c.getAddedSubList()) {
+                // Added expenses are already in the store, so their category is interned
+                add(Math.round(expense.getAmount() * 100), categories.find(expense.getCategory()));
+            }
+        }
+    }
+
+    private void add(long cents, int categoryId) {
+        count++;
+        totalCents += cents;
+        amounts.merge(cents, 1, Integer::sum);
+        if (categoryId < 0) return;
+        if (categoryId >= categoryCents.length) {
+            int capacity = Math.max(categoryId + 1, categoryCents.length * 2);
+            categoryCents = Arrays.copyOf(categoryCents, capacity);
+            categoryCounts = Arrays.copyOf(categoryCounts, capacity);
+        }
+        categoryCents[categoryId] += cents;
+        categoryCounts[categoryId]++;
+    }
+
+    private void remove(long cents, int categoryId) {
+        count--;
+        totalCents -= cents;
+        amounts.computeIfPresent(cents, (k, n) -> n == 1 ? null : n - 1);
+        if (categoryId >= 0 && categoryId < categoryCents.length) {
+            categoryCents[categoryId] -= cents;
+            categoryCounts[categoryId]--;
+        }
+    }
+
+    private void adopt(ExpenseAggregates other) {
+        count = other.count;
+        totalCents = other.totalCents;
+        amounts.clear();
+        amounts.putAll(other.amounts);
+        categoryCents = other.categoryCents.clone();
+        categoryCounts = other.categoryCounts.clone();
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    /** Smallest amount in cents, or null if there are no expenses. */
+    public Long getMinCents() {
+        return amounts.isEmpty() ? null : amounts.firstKey();
+    }
+
+    /** Largest amount in cents, or null if there are no expenses. */
+    public Long getMaxCents() {
+        return amounts.isEmpty() ? null : amounts.lastKey();
+    }
+
+    /** Total in cents per category name, for categories that have at least one expense. */
+    public Map<String, Long> getCategoryTotals() {
+        Map<String, Long> totals = new LinkedHashMap<>();
+        for (int id = 0; id < categoryCounts.length; id++) {
+            if (categoryCounts[id] > 0) {
+                totals.put(categories.get(id), categoryCents[id]);
+            }
+        }
+        return totals;
+    }
+}
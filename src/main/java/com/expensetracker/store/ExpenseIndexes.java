@@ -0,0 +1,287 @@
+package com.expensetracker.store;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Secondary indexes over an {@link ExpenseStore}: rows by date, by category, by amount bucket and
+ * by description, plus trigram indexes over the category and description dictionaries for the
+ * search text. A query walks only the postings of its most selective constraint and checks the
+ * remaining constraints directly on the columns, so one month of one category touches just those
+ * rows.
+ * <p>
+ * The same indexes keep every column in sorted order as rows change, which {@link #inOrder} uses
+ * to sort a large set of rows without comparing them.
+ */
+final class ExpenseIndexes implements RowListener {
+    // Amounts are indexed per whole currency unit; rows in the edge buckets are checked exactly
+    private static final long AMOUNT_BUCKET_CENTS = 100;
+    // How many rows a query checks between two looks at its cancellation flag
+    private static final int CANCEL_CHECK_MASK = 0xFFFF;
+
+    private static final int DRIVER_SCAN = 0;
+    private static final int DRIVER_DAY = 1;
+    private static final int DRIVER_CATEGORY = 2;
+    private static final int DRIVER_AMOUNT = 3;
+    private static final int DRIVER_TEXT = 4;
+    private static final int DRIVER_PREVIOUS = 5;
+
+    private final ExpenseStore store;
+    private final PostingIndex byDay = new PostingIndex();
+    private final PostingIndex byCategory = new PostingIndex();
+    private final PostingIndex byAmount = new PostingIndex();
+    private final PostingIndex byDescription = new PostingIndex();
+    private final TrigramIndex categoryText;
+    private final TrigramIndex descriptionText;
+
+    ExpenseIndexes(ExpenseStore store) {
+        this.store = store;
+        this.categoryText = new TrigramIndex(store.getCategories());
+        this.descriptionText = new TrigramIndex(store.getDescriptions());
+    }
+
+    @Override
+    public void rowAdded(int row) {
+        byDay.add(store.getEpochDay(row), row);
+        byCategory.add(store.getCategoryId(row), row);
+        byAmount.add(amountBucket(store.getCents(row)), row);
+        byDescription.add(store.getDescriptionId(row), row);
+        categoryText.catchUp();
+        descriptionText.catchUp();
+    }
+
+    @Override
+    public void rowRemoving(int row) {
+        byDay.remove(store.getEpochDay(row), row);
+        byCategory.remove(store.getCategoryId(row), row);
+        byAmount.remove(amountBucket(store.getCents(row)), row);
+        byDescription.remove(store.getDescriptionId(row), row);
+    }
+
+    @Override
+    public void rowRemoved(int row) {
+        int size = store.size();
+        byDay.renumberAfter(row, size);
+        byCategory.renumberAfter(row, size);
+        byAmount.renumberAfter(row, size);
+        byDescription.renumberAfter(row, size);
+    }
+
+    /**
+     * Matching rows in ascending order.
+     *
+     * @param within ascending rows known to contain every match, e.g. the result of a query this
+     *               one narrows, or null
+     * @throws CancellationException if {@code cancelled} turns true while rows are being checked
+     */
+    int[] query(ExpenseQuery query, int[] within, BooleanSupplier cancelled) {
+        int size = store.size();
+        int categoryId = store.resolveCategory(query);
+        if (categoryId == ExpenseStore.NO_SUCH_CATEGORY) {
+            return new int[0];
+        }
+
+        // Pick the constraint with the fewest candidate rows to drive the scan
+        int driver = DRIVER_SCAN;
+        int candidates = size;
+        if (query.hasDateRange()) {
+            int count = byDay.count(query.getFromDay(), query.getToDay());
+            if (count < candidates) {
+                driver = DRIVER_DAY;
+                candidates = count;
+            }
+        }
+        if (categoryId >= 0) {
+            int count = byCategory.count(categoryId, categoryId);
+            if (count < candidates) {
+                driver = DRIVER_CATEGORY;
+                candidates = count;
+            }
+        }
+        if (query.hasAmountRange()) {
+            int count = byAmount.count(amountBucket(query.getMinCents()), amountBucket(query.getMaxCents()));
+            if (count < candidates) {
+                driver = DRIVER_AMOUNT;
+                candidates = count;
+            }
+        }
+        IntList textCategories = null;
+        IntList textDescriptions = null;
+        String text = query.getSearchText();
+        // The search also matches the formatted amount, which the text indexes cannot answer
+        if (text != null && !couldMatchAmount(text)) {
+            textCategories = categoryText.find(text);
+            textDescriptions = descriptionText.find(text);
+            int count = countAll(byCategory, textCategories) + countAll(byDescription, textDescriptions);
+            if (count < candidates) {
+                driver = DRIVER_TEXT;
+                candidates = count;
+            }
+        }
+
+        if (within != null && within.length <= candidates) {
+            driver = DRIVER_PREVIOUS;
+            candidates = within.length;
+        }
+
+        IntList result = new IntList(candidates);
+        if (driver == DRIVER_PREVIOUS) {
+            // Already ascending and free of duplicates
+            for (int i = 0; i < within.length; i++) {
+                checkCancelled(i, cancelled);
+                if (store.matches(within[i], query, categoryId)) {
+                    result.add(within[i]);
+                }
+            }
+            return result.toArray();
+        }
+        if (driver == DRIVER_SCAN) {
+            for (int row = 0; row < size; row++) {
+                checkCancelled(row, cancelled);
+                if (store.matches(row, query, categoryId)) {
+                    result.add(row);
+                }
+            }
+            return result.toArray();
+        }
+
+        IntList rows = new IntList(candidates);
+        switch (driver) {
+            case DRIVER_DAY:
+                byDay.collect(query.getFromDay(), query.getToDay(), rows);
+                break;
+            case DRIVER_CATEGORY:
+                byCategory.collect(categoryId, categoryId, rows);
+                break;
+            case DRIVER_AMOUNT:
+                byAmount.collect(amountBucket(query.getMinCents()), amountBucket(query.getMaxCents()), rows);
+                break;
+            default:
+                collectAll(byCategory, textCategories, rows);
+                collectAll(byDescription, textDescriptions, rows);
+                break;
+        }
+        // Sorting first lets the text driver drop rows that matched on both category and description
+        rows.sort();
+        int previous = -1;
+        for (int i = 0; i < rows.size(); i++) {
+            checkCancelled(i, cancelled);
+            int row = rows.get(i);
+            if (row != previous && store.matches(row, query, categoryId)) {
+                result.add(row);
+            }
+            previous = row;
+        }
+        return result.toArray();
+    }
+
+    /**
+     * Puts ascending rows into the order's sequence by walking the index of its first column in key
+     * order and keeping the rows that are among them. There is no comparison sort over all the rows,
+     * only one over each run of rows that share an index key, i.e. a day, a category, a description
+     * or a whole currency unit. Within a run the rows are taken in ascending order and sorted
+     * stably, so ties end up in row order, the same as {@link RowOrder#sort}.
+     * <p>
+     * Every row of the store is visited once, so this pays off when the rows are a large part of it.
+     */
+    int[] inOrder(int[] rows, RowOrder order) {
+        RowOrder.Key first = order.getKeys().get(0);
+        boolean ascending = first.isAscending();
+        // Rows sharing an index key are fully ordered by row number alone only for an exact single key
+        boolean exact = first.getColumn() != RowOrder.Column.AMOUNT && order.getKeys().size() == 1;
+        BitSet members = null;
+        if (rows.length < store.size()) {
+            members = new BitSet(store.size());
+            for (int row : rows) {
+                members.set(row);
+            }
+        }
+
+        int[] out = new int[rows.length];
+        int count = 0;
+        switch (first.getColumn()) {
+            case DATE:
+                for (IntList posting : byDay.postings(ascending)) {
+                    count = appendRun(posting, members, out, count, order, exact);
+                }
+                break;
+            case AMOUNT:
+                for (IntList posting : byAmount.postings(ascending)) {
+                    count = appendRun(posting, members, out, count, order, exact);
+                }
+                break;
+            case CATEGORY:
+                count = appendInValueOrder(byCategory, store.getCategories().sortedIds(), ascending, members, out, order, exact);
+                break;
+            default:
+                count = appendInValueOrder(byDescription, store.getDescriptions().sortedIds(), ascending, members, out, order, exact);
+                break;
+        }
+        return out;
+    }
+
+    private static int appendInValueOrder(PostingIndex index, int[] sortedIds, boolean ascending, BitSet members,
+                                          int[] out, RowOrder order, boolean exact) {
+        int count = 0;
+        for (int i = 0; i < sortedIds.length; i++) {
+            int id = sortedIds[ascending ? i : sortedIds.length - 1 - i];
+            count = appendRun(index.get(id), members, out, count, order, exact);
+        }
+        return count;
+    }
+
+    private static int appendRun(IntList posting, BitSet members, int[] out, int count, RowOrder order, boolean exact) {
+        if (posting == null) return count;
+        int start = count;
+        for (int i = 0; i < posting.size(); i++) {
+            int row = posting.get(i);
+            if (members == null || members.get(row)) {
+                out[count++] = row;
+            }
+        }
+        if (count - start > 1) {
+            Arrays.sort(out, start, count);
+            if (!exact) {
+                order.sortRange(out, start, count);
+            }
+        }
+        return count;
+    }
+
+    private static void checkCancelled(int iteration, BooleanSupplier cancelled) {
+        if ((iteration & CANCEL_CHECK_MASK) == CANCEL_CHECK_MASK && cancelled.getAsBoolean()) {
+            throw new CancellationException();
+        }
+    }
+
+    private static int countAll(PostingIndex index, IntList keys) {
+        int count = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            count += index.count(keys.get(i), keys.get(i));
+        }
+        return count;
+    }
+
+    private static void collectAll(PostingIndex index, IntList keys, IntList out) {
+        for (int i = 0; i < keys.size(); i++) {
+            index.collect(keys.get(i), keys.get(i), out);
+        }
+    }
+
+    /** True if the text could be part of {@code String.valueOf(double)}, e.g. "12.5" or "1.0e7". */
+    private static boolean couldMatchAmount(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c < '0' || c > '9') && c != '.' && c != '-' && c != 'e') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long amountBucket(long cents) {
+        return Math.floorDiv(cents, AMOUNT_BUCKET_CENTS);
+    }
+}
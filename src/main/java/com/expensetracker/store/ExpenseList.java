@@ -0,0 +1,124 @@
+package com.expensetracker.store;
+
+import com.expensetracker.model.Expense;
+import javafx.collections.ObservableListBase;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The expenses as an {@link javafx.collections.ObservableList} backed by an {@link ExpenseStore}:
+ * element i is store row i. Elements are built from the columns when asked for, so the heap holds
+ * no {@link Expense} per row however many there are.
+ * <p>
+ * Rows a view shows are {@link #fetch fetched} into a small LRU cache. A visible row then keeps
+ * one object while it stays on screen, and its cell properties stay bound to that object. Plain
+ * {@link #get} serves from the cache when it can and otherwise builds a throwaway element. Bulk
+ * reads such as a save or an export therefore do not push the visible rows out of the cache.
+ * Elements built at different times for the same row are {@code equals}.
+ * <p>
+ * The list is changed only through the mutators below. Each one updates the store and then fires
+ * the list change, so listeners always see the store already in its new state. The regular
+ * {@code List} mutators are unsupported. Use from the FX thread only; {@link #snapshot} hands the
+ * contents to other threads.
+ */
+public class ExpenseList extends ObservableListBase<Expense> {
+    private static final int CACHE_CAPACITY = 1024;
+
+    private final ExpenseStore store;
+    private final Map<Integer, Expense> cache = new LinkedHashMap<>(CACHE_CAPACITY * 4 / 3 + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Expense> eldest) {
+            return size() > CACHE_CAPACITY;
+        }
+    };
+
+    public ExpenseList(ExpenseStore store) {
+        this.store = store;
+    }
+
+    public ExpenseStore getStore() {
+        return store;
+    }
+
+    @Override
+    public Expense get(int row) {
+        Expense expense = cache.get(row);
+        return expense != null ? expense : store.view(row);
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    /** Element for the row if it is cached, otherwise null. */
+    public Expense getCached(int row) {
+        return cache.get(row);
+    }
+
+    /** Makes sure {@code rows[from..to)} are cached, marking them as recently used. */
+    public void fetch(int[] rows, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int row = rows[i];
+            if (cache.get(row) == null) {
+                cache.put(row, store.view(row));
+            }
+        }
+    }
+
+    /** An immutable copy of the contents that may be taken and read on any thread; see {@link ExpenseStore#snapshot}. */
+    public List<Expense> snapshot() {
+        return store.snapshot();
+    }
+
+    // --- Mutators ---
+
+    public void append(Expense expense) {
+        int row = store.size();
+        store.add(expense);
+        cache.put(row, expense);
+        beginChange();
+        nextAdd(row, row + 1);
+        endChange();
+    }
+
+    /** Appends the expenses as one list change; they are not cached. */
+    public void appendAll(List<? extends Expense> expenses) {
+        if (expenses.isEmpty()) return;
+        int from = store.size();
+        store.addAll(expenses);
+        beginChange();
+        nextAdd(from, store.size());
+        endChange();
+    }
+
+    public void replace(int row, Expense expense) {
+        Expense old = get(row);
+        store.set(row, expense);
+        cache.put(row, expense);
+        beginChange();
+        nextSet(row, old);
+        endChange();
+    }
+
+    /** Removes the row; later rows move down one place, as in any list. */
+    public void removeRow(int row) {
+        Expense old = get(row);
+        store.remove(row);
+        // Cache keys are rows, so the entries after the removed one are renumbered, oldest first
+        List<Map.Entry<Integer, Expense>> entries = new ArrayList<>(cache.entrySet());
+        cache.clear();
+        for (Map.Entry<Integer, Expense> entry : entries) {
+            int cached = entry.getKey();
+            if (cached != row) {
+                cache.put(cached > row ? cached - 1 : cached, entry.getValue());
+            }
+        }
+        beginChange();
+        nextRemove(row, old);
+        endChange();
+    }
+}
@@ -0,0 +1,62 @@
+package com.expensetracker.store;
+
+import java.time.LocalDate;
+
+/**
+ * Immutable set of filter criteria evaluated against an {@link ExpenseStore}. Null arguments mean
+ * "no constraint". Bounds are inclusive; amounts are compared in cents.
+ */
+public class ExpenseQuery {
+    public static final ExpenseQuery ALL = new ExpenseQuery(null, null, null, null, null, null);
+
+    private final int fromDay;
+    private final int toDay;
+    private final String category;
+    private final long minCents;
+    private final long maxCents;
+    private final String searchText;
+
+    public ExpenseQuery(LocalDate startDate, LocalDate endDate, String category,
+                        Double minAmount, Double maxAmount, String searchText) {
+        this.fromDay = startDate == null ? Integer.MIN_VALUE : (int) startDate.toEpochDay();
+        this.toDay = endDate == null ? Integer.MAX_VALUE : (int) endDate.toEpochDay();
+        this.category = category == null || category.isEmpty() ? null : category;
+        this.minCents = minAmount == null ? Long.MIN_VALUE : Math.round(minAmount * 100);
+        this.maxCents = maxAmount == null ? Long.MAX_VALUE : Math.round(maxAmount * 100);
+        this.searchText = searchText == null || searchText.isEmpty() ? null : searchText.toLowerCase();
+    }
+
+    public boolean hasDateRange() {
+        return fromDay != Integer.MIN_VALUE || toDay != Integer.MAX_VALUE;
+    }
+
+    public boolean hasAmountRange() {
+        return minCents != Long.MIN_VALUE || maxCents != Long.MAX_VALUE;
+    }
+
+    /** True if every expense matches. */
+    public boolean isUnconstrained() {
+        return !hasDateRange() && category == null && !hasAmountRange() && searchText == null;
+    }
+
+    /**
+     * True if every expense matching this query also matches {@code previous}, e.g. a longer search
+     * text or a tighter date range. Results of {@code previous} can then be refined instead of
+     * searching the whole store again.
+     */
+    public boolean narrows(ExpenseQuery previous) {
+        return fromDay >= previous.fromDay && toDay <= previous.toDay
+                && minCents >= previous.minCents && maxCents <= previous.maxCents
+                && (previous.category == null || previous.category.equals(category))
+                // Each field is matched on its own, so a field containing the new text contains the old one
+                && (previous.searchText == null || (searchText != null && searchText.contains(previous.searchText)));
+    }
+
+    public int getFromDay() { return fromDay; }
+    public int getToDay() { return toDay; }
+    public String getCategory() { return category; }
+    public long getMinCents() { return minCents; }
+    public long getMaxCents() { return maxCents; }
+    // Already lower-cased
+    public String getSearchText() { return searchText; }
+}
@@ -0,0 +1,480 @@
+package com.expensetracker.store;
+
+import com.expensetracker.model.Expense;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Columnar in-memory home of all expenses. Each row is spread over primitive arrays: the UUID as
+ * two longs, the amount as fixed-point cents, the date as an epoch day and the category and
+ * description as ids into shared dictionaries. That is about 36 bytes per row plus the distinct
+ * strings, versus several hundred bytes for a fully populated {@link Expense}.
+ * <p>
+ * Rows are dense ({@code 0..size()-1}) and a row number doubles as an index into
+ * {@link ExpenseList}, the observable view of the store that {@code ExpenseManager} hands out. The store is mutated from the
+ * FX thread only, under a write lock; {@link #query(ExpenseQuery, BooleanSupplier)} may run on a
+ * worker thread and takes the read lock. Other readers must stay on the FX thread.
+ * <p>
+ * Date, category and amount indexes are maintained on every mutation and back {@link #query}, and
+ * an id index backs {@link #findRow}. Further per-row structures can follow along through {@link RowListener}.
+ */
+public class ExpenseStore {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // resolveCategory() result for a query naming a category that no expense has
+    static final int NO_SUCH_CATEGORY = -2;
+
+    private final StringDictionary categories = new StringDictionary();
+    private final StringDictionary descriptions = new StringDictionary();
+
+    private long[] idHigh = new long[INITIAL_CAPACITY];
+    private long[] idLow = new long[INITIAL_CAPACITY];
+    // Ids that are not canonical UUIDs; allocated only when the first one shows up
+    private String[] otherIds;
+    private long[] cents = new long[INITIAL_CAPACITY];
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    private int[] categoryIds = new int[INITIAL_CAPACITY];
+    private int[] descriptionIds = new int[INITIAL_CAPACITY];
+    private int size;
+    private long totalCents;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile long modCount;
+
+    private final ExpenseIndexes indexes = new ExpenseIndexes(this);
+    private final IdLookup ids = new IdLookup(this);
+    private final List<RowListener> listeners = new ArrayList<>();
+
+    public ExpenseStore() {
+        listeners.add(indexes);
+        listeners.add(ids);
+    }
+
+    public void addRowListener(RowListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeRowListener(RowListener listener) {
+        listeners.remove(listener);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Incremented by every mutation. */
+    public long getModCount() {
+        return modCount;
+    }
+
+    // --- Mutation ---
+
+    public void add(Expense expense) {
+        lock.writeLock().lock();
+        try {
+            modCount++;
+            ensureCapacity(size + 1);
+            int row = size++;
+            write(row, expense);
+            fireAdded(row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addAll(List<? extends Expense> expenses) {
+        lock.writeLock().lock();
+        try {
+            modCount++;
+            ensureCapacity(size + expenses.size());
+            for (Expense expense : expenses) {
+                int row = size++;
+                write(row, expense);
+                fireAdded(row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void set(int row, Expense expense) {
+        lock.writeLock().lock();
+        try {
+            modCount++;
+            checkRow(row);
+            fireRemoving(row);
+            totalCents -= cents[row];
+            write(row, expense);
+            fireAdded(row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a row. Later rows move down one place, so rows stay in the order they were added,
+     * which is the order lists, views and saved files show. Costs time linear in the store size.
+     */
+    public void remove(int row) {
+        lock.writeLock().lock();
+        try {
+            modCount++;
+            checkRow(row);
+            fireRemoving(row);
+            totalCents -= cents[row];
+            int tail = --size - row;
+            System.arraycopy(idHigh, row + 1, idHigh, row, tail);
+            System.arraycopy(idLow, row + 1, idLow, row, tail);
+            if (otherIds != null) {
+                System.arraycopy(otherIds, row + 1, otherIds, row, tail);
+                otherIds[size] = null;
+            }
+            System.arraycopy(cents, row + 1, cents, row, tail);
+            System.arraycopy(epochDays, row + 1, epochDays, row, tail);
+            System.arraycopy(categoryIds, row + 1, categoryIds, row, tail);
+            System.arraycopy(descriptionIds, row + 1, descriptionIds, row, tail);
+            for (RowListener listener : listeners) {
+                listener.rowRemoved(row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void fireAdded(int row) {
+        for (RowListener listener : listeners) {
+            listener.rowAdded(row);
+        }
+    }
+
+    private void fireRemoving(int row) {
+        for (RowListener listener : listeners) {
+            listener.rowRemoving(row);
+        }
+    }
+
+    private void write(int row, Expense expense) {
+        String id = expense.getId();
+        UUID uuid = parseUuid(id);
+        if (uuid != null) {
+            idHigh[row] = uuid.getMostSignificantBits();
+            idLow[row] = uuid.getLeastSignificantBits();
+            if (otherIds != null) otherIds[row] = null;
+        } else {
+            if (otherIds == null) otherIds = new String[idHigh.length];
+            otherIds[row] = id;
+            idHigh[row] = 0;
+            idLow[row] = 0;
+        }
+        long amountCents = Math.round(expense.getAmount() * 100);
+        cents[row] = amountCents;
+        totalCents += amountCents;
+        epochDays[row] = (int) expense.getDate().toEpochDay();
+        categoryIds[row] = categories.intern(expense.getCategory());
+        descriptionIds[row] = descriptions.intern(expense.getDescription());
+    }
+
+    // --- Column access ---
+
+    public String getId(int row) {
+        checkRow(row);
+        if (otherIds != null && otherIds[row] != null) return otherIds[row];
+        return new UUID(idHigh[row], idLow[row]).toString();
+    }
+
+    /** Row holding the expense with this id, or -1. */
+    public int findRow(String id) {
+        if (id == null) return -1;
+        UUID uuid = parseUuid(id);
+        return uuid != null ? ids.find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()) : ids.findOther(id);
+    }
+
+    long idHigh(int row) {
+        return idHigh[row];
+    }
+
+    long idLow(int row) {
+        return idLow[row];
+    }
+
+    /** The row's id if it is not a canonical UUID, otherwise null. */
+    String otherId(int row) {
+        return otherIds == null ? null : otherIds[row];
+    }
+
+    public long getCents(int row) {
+        checkRow(row);
+        return cents[row];
+    }
+
+    public int getEpochDay(int row) {
+        checkRow(row);
+        return epochDays[row];
+    }
+
+    public int getCategoryId(int row) {
+        checkRow(row);
+        return categoryIds[row];
+    }
+
+    public int getDescriptionId(int row) {
+        checkRow(row);
+        return descriptionIds[row];
+    }
+
+    public String getCategory(int row) {
+        return categories.get(getCategoryId(row));
+    }
+
+    public String getDescription(int row) {
+        return descriptions.get(getDescriptionId(row));
+    }
+
+    public StringDictionary getCategories() {
+        return categories;
+    }
+
+    public StringDictionary getDescriptions() {
+        return descriptions;
+    }
+
+    /** Builds a fresh {@link Expense} for the row; the store itself keeps no objects per row. */
+    public Expense view(int row) {
+        return new Expense(getId(row), cents[row] / 100.0, categories.get(categoryIds[row]),
+                LocalDate.ofEpochDay(epochDays[row]), descriptions.get(descriptionIds[row]));
+    }
+
+    /**
+     * Copies the columns into an immutable list whose elements are built on demand, like
+     * {@link #view}. It can be read from any thread, e.g. by a background writer, for about 45 bytes
+     * per row rather than a materialized {@link Expense} each. Taken under the read lock, so a
+     * background writer may also take it itself.
+     */
+    public List<Expense> snapshot() {
+        lock.readLock().lock();
+        try {
+            return new Snapshot(this);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static final class Snapshot extends AbstractList<Expense> implements RandomAccess {
+        private final long[] idHigh;
+        private final long[] idLow;
+        private final String[] otherIds;
+        private final long[] cents;
+        private final int[] epochDays;
+        private final int[] categoryIds;
+        private final int[] descriptionIds;
+        private final String[] categories;
+        private final String[] descriptions;
+
+        Snapshot(ExpenseStore store) {
+            int size = store.size;
+            idHigh = Arrays.copyOf(store.idHigh, size);
+            idLow = Arrays.copyOf(store.idLow, size);
+            otherIds = store.otherIds == null ? null : Arrays.copyOf(store.otherIds, size);
+            cents = Arrays.copyOf(store.cents, size);
+            epochDays = Arrays.copyOf(store.epochDays, size);
+            categoryIds = Arrays.copyOf(store.categoryIds, size);
+            descriptionIds = Arrays.copyOf(store.descriptionIds, size);
+            categories = store.categories.toArray();
+            descriptions = store.descriptions.toArray();
+        }
+
+        @Override
+        public Expense get(int row) {
+            String id = otherIds != null && otherIds[row] != null ? otherIds[row] : new UUID(idHigh[row], idLow[row]).toString();
+            return new Expense(id, cents[row] / 100.0, categories[categoryIds[row]],
+                    LocalDate.ofEpochDay(epochDays[row]), descriptions[descriptionIds[row]]);
+        }
+
+        @Override
+        public int size() {
+            return cents.length;
+        }
+    }
+
+    // --- Queries ---
+
+    /** Rows matching the query, in ascending order, found through the secondary indexes. */
+    public int[] query(ExpenseQuery query) {
+        return indexes.query(query, null, () -> false);
+    }
+
+    /**
+     * Evaluates the query under the read lock, for use off the FX thread. The query gives up with a
+     * {@link java.util.concurrent.CancellationException} once {@code cancelled} returns true, and
+     * also as soon as a mutation is waiting for the lock, so edits never stall behind a long scan.
+     * <p>
+     * If {@code previous} is still current and the query {@link ExpenseQuery#narrows narrows} it,
+     * only the previous rows are re-checked, unless an index offers fewer candidates.
+     */
+    public QueryResult query(ExpenseQuery query, QueryResult previous, BooleanSupplier cancelled) {
+        lock.readLock().lock();
+        try {
+            int[] within = previous != null && previous.getModCount() == modCount && query.narrows(previous.getQuery())
+                    ? previous.getRows() : null;
+            int[] rows = indexes.query(query, within, () -> cancelled.getAsBoolean() || lock.hasQueuedThreads());
+            return new QueryResult(query, rows, ExpenseAggregates.of(this, rows), modCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Like {@link #query(ExpenseQuery, QueryResult, BooleanSupplier)}, giving way to waiting
+     * mutations the same way, for a reader that needs only the rows: no aggregates are computed
+     * under the lock.
+     */
+    public QueryResult queryRows(ExpenseQuery query, BooleanSupplier cancelled) {
+        lock.readLock().lock();
+        try {
+            int[] rows = indexes.query(query, null, () -> cancelled.getAsBoolean() || lock.hasQueuedThreads());
+            return new QueryResult(query, rows, modCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Checks a single row against the query, e.g. for a row that was just added. */
+    public boolean matches(int row, ExpenseQuery query) {
+        checkRow(row);
+        int categoryId = resolveCategory(query);
+        return categoryId != NO_SUCH_CATEGORY && matches(row, query, categoryId);
+    }
+
+    /** Dictionary id of the query's category, -1 if it has none, or {@link #NO_SUCH_CATEGORY}. */
+    int resolveCategory(ExpenseQuery query) {
+        if (query.getCategory() == null) return -1;
+        int id = categories.find(query.getCategory());
+        return id == -1 ? NO_SUCH_CATEGORY : id;
+    }
+
+    boolean matches(int row, ExpenseQuery query, int categoryId) {
+        int day = epochDays[row];
+        if (day < query.getFromDay() || day > query.getToDay()) return false;
+        if (categoryId >= 0 && categoryIds[row] != categoryId) return false;
+        long amount = cents[row];
+        if (amount < query.getMinCents() || amount > query.getMaxCents()) return false;
+
+        String text = query.getSearchText();
+        return text == null
+                || containsIgnoreCase(descriptions.get(descriptionIds[row]), text)
+                || containsIgnoreCase(categories.get(categoryIds[row]), text)
+                || String.valueOf(amount / 100.0).contains(text);
+    }
+
+    private static boolean containsIgnoreCase(String value, String lowerCaseText) {
+        int length = lowerCaseText.length();
+        for (int i = 0, last = value.length() - length; i <= last; i++) {
+            if (value.regionMatches(true, i, lowerCaseText, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Evaluates the query and hands the result to {@code reader}, all under one read lock and
+     * without giving way to mutations. For a worker that has already given way several times and
+     * must now finish; mutations wait until it returns.
+     */
+    public <T> T queryAndRead(ExpenseQuery query, Function<QueryResult, T> reader) {
+        lock.readLock().lock();
+        try {
+            int[] rows = indexes.query(query, null, () -> false);
+            return reader.apply(new QueryResult(query, rows, ExpenseAggregates.of(this, rows), modCount));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs {@code reader} under the read lock, so a worker thread can make several reads that see
+     * the same state. Mutations wait until it returns.
+     */
+    public <T> T withReadLock(Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    ExpenseIndexes indexes() {
+        return indexes;
+    }
+
+    // --- Aggregates over the primitive columns ---
+
+    /** Sum of all amounts in cents, maintained on every mutation. */
+    public long totalCents() {
+        return totalCents;
+    }
+
+    /** Sum of the given rows in cents. */
+    public long sumCents(int[] rows, int count) {
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += cents[rows[i]];
+        }
+        return sum;
+    }
+
+    /**
+     * Per-category sums in cents for rows dated within [fromDay, toDay], indexed by category id.
+     * Pass {@code Integer.MIN_VALUE}/{@code Integer.MAX_VALUE} for an open range.
+     */
+    public long[] sumCentsByCategory(int fromDay, int toDay) {
+        long[] sums = new long[categories.size()];
+        for (int row = 0; row < size; row++) {
+            int day = epochDays[row];
+            if (day >= fromDay && day <= toDay) {
+                sums[categoryIds[row]] += cents[row];
+            }
+        }
+        return sums;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= idHigh.length) return;
+        int capacity = Math.max(required, idHigh.length + (idHigh.length >> 1));
+        idHigh = Arrays.copyOf(idHigh, capacity);
+        idLow = Arrays.copyOf(idLow, capacity);
+        if (otherIds != null) otherIds = Arrays.copyOf(otherIds, capacity);
+        cents = Arrays.copyOf(cents, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        categoryIds = Arrays.copyOf(categoryIds, capacity);
+        descriptionIds = Arrays.copyOf(descriptionIds, capacity);
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for size " + size);
+        }
+    }
+
+    /** Returns the UUID only if the id is in canonical form, so {@link #getId(int)} round-trips. */
+    static UUID parseUuid(String id) {
+        if (id == null || id.length() != 36) return null;
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
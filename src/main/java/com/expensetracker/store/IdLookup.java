@@ -0,0 +1,141 @@
+package com.expensetracker.store;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Id -> row map for {@link ExpenseStore#findRow}. UUID ids are kept in an open-addressing table
+ * of row numbers, and each key is compared against the store's two id columns. That costs a few
+ * bytes per row instead of a String and an Integer per row in a {@code HashMap}. The few ids that
+ * are not canonical UUIDs go into an ordinary map.
+ * <p>
+ * When the same id appears on several rows, the row added last wins, as it did in the list index
+ * this replaces.
+ */
+final class IdLookup implements RowListener {
+    private static final int EMPTY = -1;
+    private static final int INITIAL_SLOTS = 2048;
+
+    private final ExpenseStore store;
+    // Linear probing, at most half full; each slot holds a row or EMPTY
+    private int[] slots = newSlots(INITIAL_SLOTS);
+    private int count;
+    private final Map<String, Integer> otherRows = new HashMap<>();
+
+    IdLookup(ExpenseStore store) {
+        this.store = store;
+    }
+
+    /** Row holding the UUID with these bits, or -1. */
+    int find(long high, long low) {
+        int mask = slots.length - 1;
+        for (int i = slot(high, low); slots[i] != EMPTY; i = (i + 1) & mask) {
+            int row = slots[i];
+            if (store.idHigh(row) == high && store.idLow(row) == low) return row;
+        }
+        return -1;
+    }
+
+    /** Row holding this non-UUID id, or -1. */
+    int findOther(String id) {
+        Integer row = otherRows.get(id);
+        return row == null ? -1 : row;
+    }
+
+    @Override
+    public void rowAdded(int row) {
+        String other = store.otherId(row);
+        if (other != null) {
+            otherRows.put(other, row);
+            return;
+        }
+        long high = store.idHigh(row);
+        long low = store.idLow(row);
+        int mask = slots.length - 1;
+        int i = slot(high, low);
+        for (; slots[i] != EMPTY; i = (i + 1) & mask) {
+            int existing = slots[i];
+            if (store.idHigh(existing) == high && store.idLow(existing) == low) {
+                slots[i] = row;
+                return;
+            }
+        }
+        slots[i] = row;
+        if (++count * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+    }
+
+    @Override
+    public void rowRemoving(int row) {
+        String other = store.otherId(row);
+        if (other != null) {
+            otherRows.remove(other, row);
+            return;
+        }
+        int mask = slots.length - 1;
+        // A duplicate id that lost to a later row has no slot of its own
+        for (int i = slot(store.idHigh(row), store.idLow(row)); slots[i] != EMPTY; i = (i + 1) & mask) {
+            if (slots[i] == row) {
+                delete(i);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void rowRemoved(int row) {
+        // Slots are chosen by id, so renumbering leaves every entry where it is; EMPTY stays as is
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] -= (row - slots[i]) >>> 31;
+        }
+        if (!otherRows.isEmpty()) {
+            otherRows.replaceAll((id, other) -> other > row ? other - 1 : other);
+        }
+    }
+
+    /** Empties slot i and shifts later entries of the probe run back, so lookups never stop early. */
+    private void delete(int i) {
+        int mask = slots.length - 1;
+        int hole = i;
+        for (int j = (hole + 1) & mask; slots[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(store.idHigh(slots[j]), store.idLow(slots[j]));
+            // The entry may fill the hole only if its home slot is not between the hole and itself
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                slots[hole] = slots[j];
+                hole = j;
+            }
+        }
+        slots[hole] = EMPTY;
+        count--;
+    }
+
+    private void rehash(int capacity) {
+        int[] old = slots;
+        slots = newSlots(capacity);
+        int mask = capacity - 1;
+        for (int row : old) {
+            if (row == EMPTY) continue;
+            int i = slot(store.idHigh(row), store.idLow(row));
+            while (slots[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = row;
+        }
+    }
+
+    private int slot(long high, long low) {
+        // Ids are not necessarily random (name-based UUIDs, hand-made test ids), so mix the bits
+        long h = high ^ Long.rotateLeft(low, 32);
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return (int) (h ^ (h >>> 33)) & (slots.length - 1);
+    }
+
+    private static int[] newSlots(int capacity) {
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        return slots;
+    }
+}
@@ -0,0 +1,69 @@
+package com.expensetracker.store;
+
+import java.util.Arrays;
+
+/**
+ * Growable int array, used for row lists so that millions of rows do not turn into boxed Integers.
+ */
+public class IntList {
+    private int[] values;
+    private int size;
+
+    public IntList() {
+        this(16);
+    }
+
+    public IntList(int capacity) {
+        values = new int[Math.max(1, capacity)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int index) {
+        return values[index];
+    }
+
+    public void set(int index, int value) {
+        values[index] = value;
+    }
+
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length + (values.length >> 1) + 1);
+        }
+        values[size++] = value;
+    }
+
+    /** Removes the value at the index by moving the last value into its place. */
+    public int removeSwap(int index) {
+        int removed = values[index];
+        values[index] = values[--size];
+        return removed;
+    }
+
+    /** Lowers every value greater than {@code threshold} by one. */
+    public void decrementAbove(int threshold) {
+        for (int i = 0; i < size; i++) {
+            // Branch-free: the sign bit of threshold - value is set exactly when value > threshold
+            values[i] -= (threshold - values[i]) >>> 31;
+        }
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void sort() {
+        Arrays.sort(values, 0, size);
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
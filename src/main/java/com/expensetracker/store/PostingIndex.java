@@ -0,0 +1,78 @@
+package com.expensetracker.store;
+
+import java.util.Arrays;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Sorted key -> rows index. Every row sits in exactly one posting list, and its slot in that list
+ * is remembered per row, so add and remove are O(1) apart from the key lookup. Renumbering the rows
+ * after a removed one touches every posting. Range queries walk the sorted keys and only touch the
+ * postings inside the range.
+ */
+final class PostingIndex {
+    private final NavigableMap<Long, IntList> postings = new TreeMap<>();
+    private int[] slots = new int[1024];
+
+    void add(long key, int row) {
+        IntList posting = postings.computeIfAbsent(key, k -> new IntList(4));
+        if (row >= slots.length) {
+            slots = Arrays.copyOf(slots, Math.max(row + 1, slots.length + (slots.length >> 1)));
+        }
+        slots[row] = posting.size();
+        posting.add(row);
+    }
+
+    void remove(long key, int row) {
+        IntList posting = postings.get(key);
+        int slot = slots[row];
+        posting.removeSwap(slot);
+        if (slot < posting.size()) {
+            slots[posting.get(slot)] = slot;
+        }
+        if (posting.isEmpty()) {
+            postings.remove(key);
+        }
+    }
+
+    /**
+     * Renumbers the rows after {@code removed} one lower, once that row has been removed.
+     * {@code size} is the number of rows left.
+     */
+    void renumberAfter(int removed, int size) {
+        for (IntList posting : postings.values()) {
+            posting.decrementAbove(removed);
+        }
+        System.arraycopy(slots, removed + 1, slots, removed, size - removed);
+    }
+
+    /** The rows stored under the key, in no particular order, or null. Must not be modified. */
+    IntList get(long key) {
+        return postings.get(key);
+    }
+
+    /** Every posting list in ascending or descending key order. Must not be modified. */
+    Iterable<IntList> postings(boolean ascending) {
+        return ascending ? postings.values() : postings.descendingMap().values();
+    }
+
+    /** Number of rows with a key in [fromKey, toKey]. */
+    int count(long fromKey, long toKey) {
+        if (fromKey > toKey) return 0;
+        int count = 0;
+        for (IntList posting : postings.subMap(fromKey, true, toKey, true).values()) {
+            count += posting.size();
+        }
+        return count;
+    }
+
+    /** Appends all rows with a key in [fromKey, toKey] to {@code out}, in no particular order. */
+    void collect(long fromKey, long toKey, IntList out) {
+        if (fromKey > toKey) return;
+        for (IntList posting : postings.subMap(fromKey, true, toKey, true).values()) {
+            for (int i = 0; i < posting.size(); i++) {
+                out.add(posting.get(i));
+            }
+        }
+    }
+}
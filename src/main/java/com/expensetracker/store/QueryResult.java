@@ -0,0 +1,32 @@
+package com.expensetracker.store;
+
+/**
+ * Rows matching a query together with their aggregates, both taken under the same read lock, and
+ * the store's modification count at that moment so a caller can tell whether the result is still
+ * current.
+ */
+public class QueryResult {
+    private final ExpenseQuery query;
+    private final int[] rows;
+    private final ExpenseAggregates aggregates;
+    private final long modCount;
+
+    /** A result without aggregates, e.g. the rows on screen offered for refinement. */
+    public QueryResult(ExpenseQuery query, int[] rows, long modCount) {
+        this(query, rows, null, modCount);
+    }
+
+    QueryResult(ExpenseQuery query, int[] rows, ExpenseAggregates aggregates, long modCount) {
+        this.query = query;
+        this.rows = rows;
+        this.aggregates = aggregates;
+        this.modCount = modCount;
+    }
+
+    public ExpenseQuery getQuery() { return query; }
+    // Ascending store rows
+    public int[] getRows() { return rows; }
+    // Null for results built by callers
+    public ExpenseAggregates getAggregates() { return aggregates; }
+    public long getModCount() { return modCount; }
+}
@@ -0,0 +1,236 @@
+package com.expensetracker.store;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Pre-aggregated sums and counts per (day, category), with month and year levels kept alongside.
+ * It follows the store through {@link RowListener}, so an edit touches one bucket per level.
+ * <p>
+ * A date range is answered by splitting it into whole years, whole months and the days left over
+ * at either end. Only non-empty buckets are visited, so the cost depends on the number of buckets,
+ * not the number of expenses.
+ */
+public class RollupCube implements RowListener {
+
+    /** Granularity of {@link #totalsBy}. */
+    public enum Level { DAY, MONTH, YEAR }
+
+    private final ExpenseStore store;
+    // Keyed by epoch day, year * 12 + month - 1 and year respectively
+    private final NavigableMap<Integer, Bucket> days = new TreeMap<>();
+    private final NavigableMap<Integer, Bucket> months = new TreeMap<>();
+    private final NavigableMap<Integer, Bucket> years = new TreeMap<>();
+
+    public RollupCube(ExpenseStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void rowAdded(int row) {
+        update(row, 1);
+    }
+
+    @Override
+    public void rowRemoving(int row) {
+        update(row, -1);
+    }
+
+    @Override
+    public void rowRemoved(int row) {
+        // Buckets do not refer to rows
+    }
+
+    private void update(int row, int sign) {
+        int day = store.getEpochDay(row);
+        int categoryId = store.getCategoryId(row);
+        long cents = sign * store.getCents(row);
+        LocalDate date = LocalDate.ofEpochDay(day);
+        apply(days, day, categoryId, cents, sign);
+        apply(months, monthKey(date), categoryId, cents, sign);
+        apply(years, date.getYear(), categoryId, cents, sign);
+    }
+
+    private static void apply(NavigableMap<Integer, Bucket> level, int key, int categoryId, long cents, int count) {
+        Bucket bucket = level.computeIfAbsent(key, k -> new Bucket());
+        bucket.add(categoryId, cents, count);
+        if (bucket.count == 0) {
+            level.remove(key);
+        }
+    }
+
+    /**
+     * Total in cents per category name for expenses dated within [from, to]; null bounds are open.
+     * Categories without expenses in the range are left out.
+     */
+    public Map<String, Long> categoryTotals(LocalDate from, LocalDate to) {
+        Bucket sum = new Bucket();
+        if (days.isEmpty()) {
+            return sum.toCategoryMap(store.getCategories());
+        }
+        LocalDate first = LocalDate.ofEpochDay(days.firstKey());
+        LocalDate last = LocalDate.ofEpochDay(days.lastKey());
+        LocalDate start = from == null || from.isBefore(first) ? first : from;
+        LocalDate end = to == null || to.isAfter(last) ? last : to;
+        if (!start.isAfter(end)) {
+            accumulate(start, end, sum);
+        }
+        return sum.toCategoryMap(store.getCategories());
+    }
+
+    /**
+     * Total in cents per period within [from, to], keyed by the first day of each period. Periods
+     * are clipped to the range, and a null category means all categories.
+     */
+    public NavigableMap<LocalDate, Long> totalsBy(Level level, LocalDate from, LocalDate to, String category) {
+        NavigableMap<LocalDate, Long> totals = new TreeMap<>();
+        if (days.isEmpty()) {
+            return totals;
+        }
+        int categoryId = category == null ? -1 : store.getCategories().find(category);
+        if (category != null && categoryId == -1) {
+            return totals;
+        }
+        LocalDate first = LocalDate.ofEpochDay(days.firstKey());
+        LocalDate last = LocalDate.ofEpochDay(days.lastKey());
+        LocalDate start = from == null || from.isBefore(first) ? first : from;
+        LocalDate end = to == null || to.isAfter(last) ? last : to;
+
+        LocalDate periodStart = start;
+        while (!periodStart.isAfter(end)) {
+            LocalDate next;
+            switch (level) {
+                case DAY:
+                    next = periodStart.plusDays(1);
+                    break;
+                case MONTH:
+                    next = periodStart.withDayOfMonth(1).plusMonths(1);
+                    break;
+                default:
+                    next = periodStart.withDayOfYear(1).plusYears(1);
+                    break;
+            }
+            LocalDate periodEnd = next.minusDays(1).isAfter(end) ? end : next.minusDays(1);
+            Bucket sum = new Bucket();
+            if (level == Level.DAY) {
+                addAll(days.subMap((int) periodStart.toEpochDay(), true, (int) periodEnd.toEpochDay(), true), sum);
+            } else {
+                accumulate(periodStart, periodEnd, sum);
+            }
+            int count = categoryId == -1 ? sum.count : sum.countOf(categoryId);
+            if (count > 0) {
+                totals.put(periodStart, categoryId == -1 ? sum.total() : sum.centsOf(categoryId));
+            }
+            if (level == Level.DAY) {
+                // Skip straight to the next day that has expenses
+                Integer nextDay = days.higherKey((int) periodStart.toEpochDay());
+                next = nextDay == null ? end.plusDays(1) : LocalDate.ofEpochDay(nextDay);
+            }
+            periodStart = next;
+        }
+        return totals;
+    }
+
+    /** Adds the buckets covering [start, end] to {@code sum}, using the coarsest level that fits. */
+    private void accumulate(LocalDate start, LocalDate end, Bucket sum) {
+        LocalDate firstFullMonth = start.getDayOfMonth() == 1 ? start : start.withDayOfMonth(1).plusMonths(1);
+        LocalDate afterFullMonths = end.plusDays(1).withDayOfMonth(1);
+        if (!firstFullMonth.isBefore(afterFullMonths)) {
+            addDays(start, end.plusDays(1), sum);
+            return;
+        }
+        addDays(start, firstFullMonth, sum);
+        addDays(afterFullMonths, end.plusDays(1), sum);
+
+        LocalDate firstFullYear = firstFullMonth.getDayOfYear() == 1 ? firstFullMonth : firstFullMonth.withDayOfYear(1).plusYears(1);
+        LocalDate afterFullYears = afterFullMonths.withDayOfYear(1);
+        if (!firstFullYear.isBefore(afterFullYears)) {
+            addMonths(firstFullMonth, afterFullMonths, sum);
+            return;
+        }
+        addMonths(firstFullMonth, firstFullYear, sum);
+        addAll(years.subMap(firstFullYear.getYear(), true, afterFullYears.getYear(), false), sum);
+        addMonths(afterFullYears, afterFullMonths, sum);
+    }
+
+    // Ranges below are half-open: [from, until)
+
+    private void addDays(LocalDate from, LocalDate until, Bucket sum) {
+        addAll(days.subMap((int) from.toEpochDay(), true, (int) until.toEpochDay(), false), sum);
+    }
+
+    private void addMonths(LocalDate from, LocalDate until, Bucket sum) {
+        addAll(months.subMap(monthKey(from), true, monthKey(until), false), sum);
+    }
+
+    private static void addAll(Map<Integer, Bucket> buckets, Bucket sum) {
+        for (Bucket bucket : buckets.values()) {
+            sum.addBucket(bucket);
+        }
+    }
+
+    private static int monthKey(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    /** Sums and counts per category id. */
+    private static final class Bucket {
+        private long[] cents = new long[8];
+        private int[] counts = new int[8];
+        private int count;
+
+        void add(int categoryId, long amount, int n) {
+            ensure(categoryId + 1);
+            cents[categoryId] += amount;
+            counts[categoryId] += n;
+            count += n;
+        }
+
+        void addBucket(Bucket other) {
+            ensure(other.cents.length);
+            for (int id = 0; id < other.cents.length; id++) {
+                cents[id] += other.cents[id];
+                counts[id] += other.counts[id];
+            }
+            count += other.count;
+        }
+
+        long total() {
+            long total = 0;
+            for (long c : cents) {
+                total += c;
+            }
+            return total;
+        }
+
+        long centsOf(int categoryId) {
+            return categoryId < cents.length ? cents[categoryId] : 0;
+        }
+
+        int countOf(int categoryId) {
+            return categoryId < counts.length ? counts[categoryId] : 0;
+        }
+
+        Map<String, Long> toCategoryMap(StringDictionary categories) {
+            Map<String, Long> totals = new LinkedHashMap<>();
+            for (int id = 0; id < counts.length; id++) {
+                if (counts[id] > 0) {
+                    totals.put(categories.get(id), cents[id]);
+                }
+            }
+            return totals;
+        }
+
+        private void ensure(int length) {
+            if (length > cents.length) {
+                int capacity = Math.max(length, cents.length * 2);
+                cents = Arrays.copyOf(cents, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+            }
+        }
+    }
+}
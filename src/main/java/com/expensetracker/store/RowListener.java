@@ -0,0 +1,18 @@
+package com.expensetracker.store;
+
+/**
+ * Notified by {@link ExpenseStore} as rows change, so that indexes and aggregates can be kept up
+ * to date incrementally. An update is reported as {@link #rowRemoving} followed by
+ * {@link #rowAdded} for the same row.
+ */
+public interface RowListener {
+
+    /** The row has been written and its columns hold the new values. */
+    void rowAdded(int row);
+
+    /** The row is about to go away; its columns still hold the old values. */
+    void rowRemoving(int row);
+
+    /** The row has been removed and every later row renumbered one lower, keeping their order. */
+    void rowRemoved(int row);
+}
@@ -0,0 +1,225 @@
+package com.expensetracker.store;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A sort order over store rows, compared on the primitive columns so a table can be sorted
+ * without building an {@link com.expensetracker.model.Expense} per row. Categories and descriptions
+ * compare by the rank of their dictionary id, taken from the order the dictionary keeps when a
+ * sort starts. Ids interned after that fall back to the dictionary's collator, which orders the
+ * strings as the TableView's default comparator does. Distinct strings that collate equal are
+ * ordered by id, where the table would keep their current order.
+ * <p>
+ * {@link #sort} must run under the store's read lock or on the FX thread. {@link #compare} and
+ * {@link #upperBound} must run on the FX thread after a sort has published its ranks.
+ */
+public final class RowOrder {
+
+    public enum Column {AMOUNT, DATE, CATEGORY, DESCRIPTION}
+
+    /** One sort column and its direction. */
+    public static final class Key {
+        private final Column column;
+        private final boolean ascending;
+
+        public Key(Column column, boolean ascending) {
+            this.column = column;
+            this.ascending = ascending;
+        }
+
+        public Column getColumn() {
+            return column;
+        }
+
+        public boolean isAscending() {
+            return ascending;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return column == other.column && ascending == other.ascending;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(column, ascending);
+        }
+    }
+
+    // Below this many rows a merge sort run is finished by insertion sort
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    private final ExpenseStore store;
+    private final Key[] keys;
+    private int[] categoryRanks;
+    private int[] descriptionRanks;
+
+    public RowOrder(ExpenseStore store, List<Key> keys) {
+        this.store = store;
+        this.keys = keys.toArray(new Key[0]);
+    }
+
+    public List<Key> getKeys() {
+        return List.of(keys);
+    }
+
+    /**
+     * The rows, which must be ascending, sorted by this order; rows that compare equal keep their
+     * relative order. When the rows are a large part of the store, i.e. m log m exceeds the store
+     * size, they are taken in the order the store's indexes already keep. Otherwise they are sorted.
+     */
+    public int[] sort(int[] rows) {
+        // Values interned since the last sort need ranks too. A newer order keeps the old ids in the
+        // same relative order, so rows already sorted with the old ranks stay sorted.
+        for (Key key : keys) {
+            if (key.column == Column.CATEGORY && !covers(categoryRanks, store.getCategories())) {
+                categoryRanks = store.getCategories().ranks();
+            } else if (key.column == Column.DESCRIPTION && !covers(descriptionRanks, store.getDescriptions())) {
+                descriptionRanks = store.getDescriptions().ranks();
+            }
+        }
+        if (keys.length > 0 && (long) rows.length * (32 - Integer.numberOfLeadingZeros(rows.length)) > store.size()) {
+            return store.indexes().inOrder(rows, this);
+        }
+        int[] sorted = sortByPackedKeys(rows);
+        if (sorted == null) {
+            sorted = rows.clone();
+            mergeSort(sorted, rows.clone(), 0, sorted.length);
+        }
+        return sorted;
+    }
+
+    private static boolean covers(int[] ranks, StringDictionary dictionary) {
+        return ranks != null && ranks.length >= dictionary.size();
+    }
+
+    /**
+     * Sorts with one primitive sort of (key, position) pairs per key, least significant key first.
+     * The position breaks ties, so each pass keeps the order of the one before. Returns null if a
+     * key does not fit in an int, which only an amount can fail to do.
+     */
+    private int[] sortByPackedKeys(int[] rows) {
+        int[] sorted = rows.clone();
+        long[] packed = new long[rows.length];
+        for (int k = keys.length - 1; k >= 0; k--) {
+            Key key = keys[k];
+            for (int i = 0; i < sorted.length; i++) {
+                long value = intKey(key.column, sorted[i]);
+                if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) return null;
+                // Bitwise not reverses the order of ints
+                packed[i] = (key.ascending ? value : ~value) << 32 | i;
+            }
+            Arrays.sort(packed);
+            int[] next = new int[sorted.length];
+            for (int i = 0; i < next.length; i++) {
+                next[i] = sorted[(int) packed[i]];
+            }
+            sorted = next;
+        }
+        return sorted;
+    }
+
+    private long intKey(Column column, int row) {
+        switch (column) {
+            case AMOUNT:
+                return store.getCents(row);
+            case DATE:
+                return store.getEpochDay(row);
+            case CATEGORY:
+                return categoryRanks[store.getCategoryId(row)];
+            default:
+                return descriptionRanks[store.getDescriptionId(row)];
+        }
+    }
+
+    /** First position in {@code sorted[0..size)} whose row sorts after {@code row}. */
+    public int upperBound(int[] sorted, int size, int row) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(sorted[mid], row) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    public int compare(int a, int b) {
+        for (Key key : keys) {
+            int c = compare(key.column, a, b);
+            if (c != 0) return key.ascending ? c : -c;
+        }
+        return 0;
+    }
+
+    private int compare(Column column, int a, int b) {
+        switch (column) {
+            case AMOUNT:
+                return Long.compare(store.getCents(a), store.getCents(b));
+            case DATE:
+                return Integer.compare(store.getEpochDay(a), store.getEpochDay(b));
+            case CATEGORY:
+                return compareValues(store.getCategories(), categoryRanks, store.getCategoryId(a), store.getCategoryId(b));
+            default:
+                return compareValues(store.getDescriptions(), descriptionRanks, store.getDescriptionId(a), store.getDescriptionId(b));
+        }
+    }
+
+    private static int compareValues(StringDictionary dictionary, int[] ranks, int a, int b) {
+        if (a == b) return 0;
+        if (ranks != null && a < ranks.length && b < ranks.length) {
+            return Integer.compare(ranks[a], ranks[b]);
+        }
+        return dictionary.compare(a, b);
+    }
+
+    /** Stably sorts {@code rows[from..to)} by this order. */
+    void sortRange(int[] rows, int from, int to) {
+        int[] run = Arrays.copyOfRange(rows, from, to);
+        int[] sorted = sortByPackedKeys(run);
+        if (sorted == null) {
+            sorted = run;
+            mergeSort(sorted, run.clone(), 0, run.length);
+        }
+        System.arraycopy(sorted, 0, rows, from, sorted.length);
+    }
+
+    /** Sorts {@code a[from..to)} using {@code b}, which holds the same values, as scratch space. */
+    private void mergeSort(int[] a, int[] b, int from, int to) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int row = a[i];
+                int j = i - 1;
+                while (j >= from && compare(a[j], row) > 0) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = row;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        // Sort both halves into b, then merge them back into a
+        mergeSort(b, a, from, mid);
+        mergeSort(b, a, mid, to);
+        if (compare(b[mid - 1], b[mid]) <= 0) {
+            System.arraycopy(b, from, a, from, to - from);
+            return;
+        }
+        for (int i = from, p = from, q = mid; i < to; i++) {
+            if (q >= to || (p < mid && compare(b[p], b[q]) <= 0)) {
+                a[i] = b[p++];
+            } else {
+                a[i] = b[q++];
+            }
+        }
+    }
+}
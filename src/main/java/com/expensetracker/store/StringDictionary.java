@@ -0,0 +1,134 @@
+package com.expensetracker.store;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns dense int ids to strings so that columns can store an int per row and every distinct
+ * value is kept on the heap once. Ids are never reused.
+ * <p>
+ * The ids are also kept in the order of their values, for sorting by this column. Values are
+ * ordered by the default locale's {@link Collator}, as a TableView column of strings sorts them by
+ * default. Values interned since the order was last asked for are sorted on their own by
+ * {@link CollationKey} and then placed by binary search, so the order costs
+ * O(new * log size + size) to keep up rather than collating every value again. Values that collate
+ * equal are ordered by id.
+ */
+public class StringDictionary {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+    private final Collator collator = Collator.getInstance();
+    // Value order of ids [0, sortedIds.length), and each such id's position in it; replaced, never modified
+    private int[] sortedIds = new int[0];
+    private int[] ranks = new int[0];
+
+    public int intern(String value) {
+        String key = value == null ? "" : value;
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = values.size();
+            ids.put(key, id);
+            values.add(key);
+        }
+        return id;
+    }
+
+    /** Returns the id of an already interned value, or -1. */
+    public int find(String value) {
+        Integer id = ids.get(value == null ? "" : value);
+        return id == null ? -1 : id;
+    }
+
+    public String get(int id) {
+        return values.get(id);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Ids in ascending order of their values. The array must not be modified. Safe to call under
+     * the store's read lock; it may still miss values interned after the call.
+     */
+    public synchronized int[] sortedIds() {
+        catchUp();
+        return sortedIds;
+    }
+
+    /** Compares the values of two ids in the order of {@link #sortedIds()}, apart from ties. */
+    public int compare(int a, int b) {
+        return collator.compare(values.get(a), values.get(b));
+    }
+
+    /** Position of each id in {@link #sortedIds()}. The array must not be modified. */
+    public synchronized int[] ranks() {
+        catchUp();
+        return ranks;
+    }
+
+    private void catchUp() {
+        int known = sortedIds.length;
+        int size = values.size();
+        if (known == size) return;
+
+        // A key is built once per new value; the sort is stable, so equal keys stay in id order
+        CollationKey[] added = new CollationKey[size - known];
+        int[] addedIds = new int[added.length];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = collator.getCollationKey(values.get(known + i));
+        }
+        Integer[] order = new Integer[added.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> added[a].compareTo(added[b]));
+        for (int i = 0; i < order.length; i++) {
+            addedIds[i] = known + order[i];
+        }
+
+        int[] merged = new int[size];
+        int p = 0;
+        int m = 0;
+        for (int q = 0; q < addedIds.length; q++) {
+            // Older ids go first among equal values; the added values are sorted, so search onwards from p
+            int position = upperBound(added[order[q]].getSourceString(), p, known);
+            System.arraycopy(sortedIds, p, merged, m, position - p);
+            m += position - p;
+            p = position;
+            merged[m++] = addedIds[q];
+        }
+        System.arraycopy(sortedIds, p, merged, m, known - p);
+        int[] positions = new int[size];
+        for (int i = 0; i < size; i++) {
+            positions[merged[i]] = i;
+        }
+        sortedIds = merged;
+        ranks = positions;
+    }
+
+    /** First position in {@code sortedIds[from..to)} whose value collates after {@code value}. */
+    private int upperBound(String value, int from, int to) {
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (collator.compare(values.get(sortedIds[mid]), value) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** The values indexed by id, copied so the array can be read from any thread. */
+    public String[] toArray() {
+        return values.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,71 @@
+package com.expensetracker.store;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Inverted trigram index over the values of a {@link StringDictionary}. Dictionaries only grow, so
+ * the index just catches up with newly interned values; it never has to forget one. Indexing the
+ * distinct values instead of rows keeps it small when many expenses share a description.
+ */
+final class TrigramIndex {
+    private final StringDictionary dictionary;
+    // Packed lower-case trigram -> ascending dictionary ids containing it
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private int indexed;
+
+    TrigramIndex(StringDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /** Indexes values interned since the last call. */
+    void catchUp() {
+        while (indexed < dictionary.size()) {
+            String value = dictionary.get(indexed).toLowerCase();
+            for (int i = 0; i + 3 <= value.length(); i++) {
+                IntList posting = postings.computeIfAbsent(trigram(value, i), k -> new IntList(2));
+                // Ids arrive in ascending order, so a repeat within one value is always the last entry
+                if (posting.isEmpty() || posting.get(posting.size() - 1) != indexed) {
+                    posting.add(indexed);
+                }
+            }
+            indexed++;
+        }
+    }
+
+    /** Ids of the values that contain the already lower-cased text. */
+    IntList find(String lowerCaseText) {
+        IntList result = new IntList();
+        if (lowerCaseText.length() < 3) {
+            // Too short for a trigram; the distinct values are still far fewer than the rows
+            for (int id = 0; id < indexed; id++) {
+                if (dictionary.get(id).toLowerCase().contains(lowerCaseText)) {
+                    result.add(id);
+                }
+            }
+            return result;
+        }
+
+        IntList smallest = null;
+        for (int i = 0; i + 3 <= lowerCaseText.length(); i++) {
+            IntList posting = postings.get(trigram(lowerCaseText, i));
+            if (posting == null) {
+                return result;
+            }
+            if (smallest == null || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+        for (int i = 0; i < smallest.size(); i++) {
+            int id = smallest.get(i);
+            if (dictionary.get(id).toLowerCase().contains(lowerCaseText)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static long trigram(String value, int offset) {
+        return ((long) value.charAt(offset) << 32) | ((long) value.charAt(offset + 1) << 16) | value.charAt(offset + 2);
+    }
+}
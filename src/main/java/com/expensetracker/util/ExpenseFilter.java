@@ -1,105 +1,223 @@
 package com.expensetracker.util;
 
 import com.expensetracker.model.Expense;
-import javafx.collections.FXCollections;
+import com.expensetracker.store.ExpenseAggregates;
+import com.expensetracker.store.ExpenseList;
+import com.expensetracker.store.ExpenseQuery;
+import com.expensetracker.store.ExpenseStore;
+import com.expensetracker.store.QueryResult;
+import com.expensetracker.store.RowOrder;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
-import javafx.collections.transformation.SortedList;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.util.Duration;
 
 import java.time.LocalDate;
-import java.util.function.Predicate;
-
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Filters and sorts the store-backed expense list through the store's indexes and columns.
+ * <p>
+ * Filter changes are debounced and evaluated on a worker thread. Every change bumps a generation
+ * number; an evaluation that is overtaken by newer input stops early and its result is dropped.
+ * The winning result replaces the visible rows and the total together on the FX thread.
+ * <p>
+ * When the new criteria only narrow the visible ones (a longer search text, a tighter range, a
+ * category picked instead of "All Categories") just the visible rows are re-checked.
+ * <p>
+ * Sorting goes the same way. A table bound with {@link #bindSort} hands its sort order over
+ * instead of sorting the items itself. On the worker, the matching rows are put in order on their
+ * store columns. When most rows match, they are read off the store's sorted indexes. Rows added
+ * later are inserted at their sorted position.
+ */
 public class ExpenseFilter {
-    private final FilteredList<Expense> filteredList;
-    private final SortedList<Expense> sortedList;
-    
+    private static final Logger LOGGER = Logger.getLogger(ExpenseFilter.class.getName());
+
+    private static final Duration DEBOUNCE = Duration.millis(150);
+
+    private final ExpenseStore store;
+    private final RowSubsetList filteredList;
+    private final ExpenseAggregates aggregates;
+    private final ReadOnlyDoubleWrapper total = new ReadOnlyDoubleWrapper(this, "total");
+
+    private final PauseTransition debounce = new PauseTransition(DEBOUNCE);
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "expense-filter");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicLong generation = new AtomicLong();
+    private Future<?> inFlight;
+
     private LocalDate startDate;
     private LocalDate endDate;
     private String categoryFilter;
     private Double minAmount;
     private Double maxAmount;
     private String searchText;
-
-    public ExpenseFilter(ObservableList<Expense> expenses) {
-        this.filteredList = new FilteredList<>(expenses);
-        this.sortedList = new SortedList<>(filteredList);
-        
-        // Set default filter predicate
-        updateFilterPredicate();
+    private List<RowOrder.Key> sortKeys = List.of();
+
+    public ExpenseFilter(ExpenseList expenses) {
+        this.store = expenses.getStore();
+        // Starts out showing everything in store order, evaluated synchronously
+        QueryResult initial = store.query(ExpenseQuery.ALL, null, () -> false);
+        this.filteredList = new RowSubsetList(expenses, initial);
+        this.aggregates = initial.getAggregates();
+        filteredList.addListener(aggregates);
+        total.set(aggregates.getTotalCents() / 100.0);
+        filteredList.addListener((ListChangeListener<Expense>) c -> total.set(aggregates.getTotalCents() / 100.0));
+        debounce.setOnFinished(e -> submit(buildQuery()));
     }
 
     public void setDateRange(LocalDate startDate, LocalDate endDate) {
         this.startDate = startDate;
         this.endDate = endDate;
-        updateFilterPredicate();
+        updateQuery();
     }
 
     public void setCategory(String category) {
         this.categoryFilter = category;
-        updateFilterPredicate();
+        updateQuery();
     }
 
     public void setAmountRange(Double minAmount, Double maxAmount) {
         this.minAmount = minAmount;
         this.maxAmount = maxAmount;
-        updateFilterPredicate();
+        updateQuery();
     }
 
     public void setSearchQuery(String searchText) { // Added this method
         this.searchText = searchText;
-        updateFilterPredicate();
+        updateQuery();
     }
 
-    private void updateFilterPredicate() {
-        filteredList.setPredicate(expense -> {
-            if (expense == null) return false;
+    private void updateQuery() {
+        // Supersede any evaluation in flight right away; the new one starts once input settles
+        generation.incrementAndGet();
+        debounce.playFromStart();
+    }
 
-            boolean matches = true;
+    private ExpenseQuery buildQuery() {
+        // "All Categories" is the combo box entry for no category filter
+        String category = "All Categories".equals(categoryFilter) ? null : categoryFilter;
+        return new ExpenseQuery(startDate, endDate, category, minAmount, maxAmount, searchText);
+    }
 
-            // Date range filter
-            if (startDate != null && expense.getDate().isBefore(startDate)) {
-                matches = false;
-            }
-            if (endDate != null && expense.getDate().isAfter(endDate)) {
-                matches = false;
-            }
+    /**
+     * Sorts the rows by these keys, or shows them in store order if there are none. Like a filter
+     * change this runs on the worker, but without the debounce.
+     */
+    public void setSortOrder(List<RowOrder.Key> keys) {
+        if (keys.equals(sortKeys)) return;
+        sortKeys = List.copyOf(keys);
+        debounce.stop();
+        submit(buildQuery());
+    }
 
-            // Category filter
-            if (categoryFilter != null && !categoryFilter.isEmpty() && 
-                !categoryFilter.equals("All Categories") && 
-                !expense.getCategory().equals(categoryFilter)) { // Changed "All" to "All Categories"
-                matches = false;
-            }
+    private void submit(ExpenseQuery query) {
+        long current = generation.incrementAndGet();
+        if (inFlight != null) {
+            inFlight.cancel(false);
+        }
+        // Taken on the FX thread so the rows match the store's current modification count
+        QueryResult previous = query.narrows(filteredList.getQuery()) ? filteredList.currentResult() : null;
+        RowOrder order = sortKeys.isEmpty() ? null : new RowOrder(store, sortKeys);
+        inFlight = worker.submit(() -> evaluate(query, previous, order, current));
+    }
 
-            // Amount range filter
-            if (minAmount != null && expense.getAmount() < minAmount) {
-                matches = false;
-            }
-            if (maxAmount != null && expense.getAmount() > maxAmount) {
-                matches = false;
-            }
+    private void evaluate(ExpenseQuery query, QueryResult previous, RowOrder order, long current) {
+        QueryResult result;
+        int[] sortedRows;
+        try {
+            result = store.query(query, previous, () -> generation.get() != current);
+            sortedRows = order == null ? null : store.withReadLock(() -> {
+                // The rows are only valid at the modification count they were found at
+                if (store.getModCount() != result.getModCount()) throw new CancellationException();
+                return order.sort(result.getRows());
+            });
+        } catch (CancellationException e) {
+            // Either overtaken by newer input, or yielded to an edit waiting for the store
+            Platform.runLater(() -> {
+                if (generation.get() == current) submit(query);
+            });
+            return;
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Filtering expenses failed", e);
+            return;
+        }
+        Platform.runLater(() -> publish(result, order, sortedRows, current));
+    }
 
-            // Search text filter
-            if (searchText != null && !searchText.isEmpty()) {
-                String lowerCaseSearch = searchText.toLowerCase();
-                boolean containsSearch = expense.getDescription().toLowerCase().contains(lowerCaseSearch) ||
-                                      expense.getCategory().toLowerCase().contains(lowerCaseSearch) ||
-                                      String.valueOf(expense.getAmount()).contains(lowerCaseSearch);
-                if (!containsSearch) {
-                    matches = false;
-                }
-            }
+    private void publish(QueryResult result, RowOrder order, int[] sortedRows, long current) {
+        if (generation.get() != current) {
+            return;
+        }
+        if (result.getModCount() != store.getModCount()) {
+            // Expenses changed while the query ran; the rows no longer line up with the list
+            submit(result.getQuery());
+            return;
+        }
+        // Rows and aggregates were computed together on the worker; swap both in one change
+        aggregates.expectReplacement(result.getAggregates());
+        filteredList.publish(result, order, sortedRows);
+        // Going from no rows to no rows fires no change; nothing was left to adopt then
+        aggregates.expectReplacement(null);
+    }
 
-            return matches;
-        });
+    /** The criteria behind the rows currently shown. */
+    public ExpenseQuery getQuery() {
+        return filteredList.getQuery();
+    }
+
+    /** Count, total, min/max and per-category sums of the visible expenses. */
+    public ExpenseAggregates getAggregates() {
+        return aggregates;
+    }
+
+    /** Sum of the visible expenses; updated together with the rows. */
+    public ReadOnlyDoubleProperty totalProperty() {
+        return total.getReadOnlyProperty();
     }
 
-    public SortedList<Expense> getSortedList() {
-        return sortedList;
+    public double getTotal() {
+        return total.get();
     }
 
-    public void bindSort(javafx.scene.control.TableView<Expense> tableView) {
-        sortedList.comparatorProperty().bind(tableView.comparatorProperty());
+    /** The matching expenses in the current sort order. */
+    public ObservableList<Expense> getSortedList() {
+        return filteredList;
+    }
+
+    /**
+     * Makes the table hand its sort order to {@link #setSortOrder}. Columns missing from
+     * {@code columns} are left out of the order.
+     */
+    public void bindSort(TableView<Expense> tableView, Map<TableColumn<Expense, ?>, RowOrder.Column> columns) {
+        tableView.setSortPolicy(table -> {
+            List<RowOrder.Key> keys = new ArrayList<>();
+            for (TableColumn<Expense, ?> column : table.getSortOrder()) {
+                RowOrder.Column sortColumn = columns.get(column);
+                if (sortColumn != null) {
+                    keys.add(new RowOrder.Key(sortColumn, column.getSortType() == TableColumn.SortType.ASCENDING));
+                }
+            }
+            setSortOrder(keys);
+            return true;
+        });
     }
 
     public void clearFilters() {
@@ -109,6 +227,13 @@ public class ExpenseFilter {
         minAmount = null;
         maxAmount = null;
         searchText = null;
-        updateFilterPredicate();
+        updateQuery();
+    }
+
+    /** Stops the worker thread. */
+    public void shutdown() {
+        debounce.stop();
+        generation.incrementAndGet();
+        worker.shutdownNow();
     }
 }
@@ -0,0 +1,179 @@
+package com.expensetracker.util;
+
+import com.expensetracker.model.Expense;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Streams an expense CSV export and validates it in batches. Nothing touches the UI or the
+ * managers here, so it can run on a background thread; the caller inserts the valid rows in one
+ * go and shows the collected errors as a single report. For files too large to collect, the
+ * valid rows can instead be handed on batch by batch as they are validated.
+ */
+public class ExpenseImporter {
+    private static final int BATCH_SIZE = 5000;
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private static final CSVFormat IMPORT_FORMAT = CSVFormat.DEFAULT.builder()
+            .setHeader("id", "amount", "category", "date", "description")
+            .setSkipHeaderRecord(true)
+            .setTrim(true)
+            .build();
+
+    /** One rejected input row. */
+    public static class ImportError {
+        private final long line;
+        private final String message;
+
+        public ImportError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() { return line; }
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return "Line " + line + ": " + message;
+        }
+    }
+
+    /** Valid expenses plus an error report for everything that was skipped. */
+    public static class ImportResult {
+        private final List<Expense> expenses;
+        private final int importedCount;
+        private final List<ImportError> errors;
+        private final int errorCount;
+        private final String fatalError;
+
+        ImportResult(List<Expense> expenses, int importedCount, List<ImportError> errors, int errorCount, String fatalError) {
+            this.expenses = expenses;
+            this.importedCount = importedCount;
+            this.errors = Collections.unmodifiableList(errors);
+            this.errorCount = errorCount;
+            this.fatalError = fatalError;
+        }
+
+        // Empty when the rows were handed to a batch consumer instead
+        public List<Expense> getExpenses() { return expenses; }
+        public int getImportedCount() { return importedCount; }
+        // Only the first MAX_REPORTED_ERRORS are kept; see getErrorCount() for the total
+        public List<ImportError> getErrors() { return errors; }
+        public int getErrorCount() { return errorCount; }
+        // Set when parsing had to stop early, e.g. on broken quoting
+        public String getFatalError() { return fatalError; }
+
+        public String summary() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Imported %d expense(s).", importedCount));
+            if (fatalError != null) {
+                sb.append("\nImport stopped: ").append(fatalError);
+            }
+            if (errorCount > 0) {
+                sb.append(String.format("%nSkipped %d malformed row(s):", errorCount));
+                for (ImportError error : errors) {
+                    sb.append('\n').append(error);
+                }
+                if (errorCount > errors.size()) {
+                    sb.append(String.format("%n... and %d more", errorCount - errors.size()));
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    public ImportResult importCsv(Reader reader) throws IOException {
+        List<Expense> expenses = new ArrayList<>();
+        ImportResult result = importCsv(reader, expenses::addAll);
+        return new ImportResult(expenses, result.importedCount, result.errors, result.errorCount, result.fatalError);
+    }
+
+    /**
+     * Validates the CSV batch by batch and passes each batch's valid rows to {@code sink}, so
+     * memory use does not depend on the file size. The result holds no expenses, only the count.
+     */
+    public ImportResult importCsv(Reader reader, Consumer<List<Expense>> sink) throws IOException {
+        List<ImportError> errors = new ArrayList<>();
+        int rows = 0;
+        int imported = 0;
+        String fatalError = null;
+
+        try (CSVParser parser = new CSVParser(reader, IMPORT_FORMAT)) {
+            List<CSVRecord> batch = new ArrayList<>(BATCH_SIZE);
+            for (CSVRecord record : parser) {
+                batch.add(record);
+                if (batch.size() == BATCH_SIZE) {
+                    imported += validateBatch(batch, sink, errors);
+                    rows += batch.size();
+                    batch.clear();
+                }
+            }
+            imported += validateBatch(batch, sink, errors);
+            rows += batch.size();
+        } catch (IllegalStateException | UncheckedIOException e) {
+            // Commons CSV gives up on broken quoting; keep what was validated so far
+            fatalError = e.getMessage();
+        }
+        return new ImportResult(List.of(), imported, errors, rows - imported, fatalError);
+    }
+
+    /** Hands the batch's valid rows to the sink and returns how many there were. */
+    private int validateBatch(List<CSVRecord> batch, Consumer<List<Expense>> sink, List<ImportError> errors) {
+        List<Expense> expenses = new ArrayList<>(batch.size());
+        for (CSVRecord record : batch) {
+            try {
+                expenses.add(toExpense(record));
+            } catch (NumberFormatException | DateTimeParseException | InvalidRowException ex) {
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    // Record numbers exclude the header line
+                    errors.add(new ImportError(record.getRecordNumber() + 1, ex.getMessage()));
+                }
+            }
+        }
+        if (!expenses.isEmpty()) {
+            sink.accept(expenses);
+        }
+        return expenses.size();
+    }
+
+    private Expense toExpense(CSVRecord record) {
+        String id = record.get("id").isEmpty() ? UUID.randomUUID().toString() : record.get("id");
+        String amountText = required(record, "amount");
+        double amount = Double.parseDouble(amountText);
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new InvalidRowException("Amount is not a number: " + amountText);
+        }
+        String category = required(record, "category");
+        LocalDate date = LocalDate.parse(required(record, "date"));
+        String description = record.isSet("description") ? record.get("description") : "";
+        return new Expense(id, amount, category, date, description);
+    }
+
+    private static String required(CSVRecord record, String column) {
+        if (!record.isSet(column) || record.get(column).isEmpty()) {
+            throw new InvalidRowException("Missing " + column);
+        }
+        return record.get(column);
+    }
+
+    private static class InvalidRowException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        InvalidRowException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.expensetracker.util;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.store.ExpenseList;
+import com.expensetracker.store.ExpenseQuery;
+import com.expensetracker.store.ExpenseStore;
+import com.expensetracker.store.QueryResult;
+import com.expensetracker.store.RowOrder;
+import javafx.collections.ListChangeListener;
+import javafx.collections.transformation.TransformationList;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * View of the expenses whose store rows match an {@link ExpenseQuery}, optionally sorted by a
+ * {@link RowOrder}. It replaces a {@code FilteredList} and a {@code SortedList}. A new query is
+ * answered from the store's indexes instead of testing every element. Sorting compares store
+ * columns, so no element is built for it. Source changes are applied by re-checking only the rows
+ * that changed.
+ * <p>
+ * The list itself holds only row numbers. Elements are {@link ExpenseList#fetch fetched} from the
+ * source when asked for, together with a window of neighbouring positions, so a table scrolling
+ * through millions of rows keeps only about a screenful of them on the heap.
+ */
+class RowSubsetList extends TransformationList<Expense, Expense> {
+    // Positions fetched around a requested one that is not cached yet
+    private static final int PREFETCH_BEFORE = 16;
+    private static final int PREFETCH_AFTER = 48;
+    // Added rows from one change above which a sorted view merges them instead of inserting each
+    private static final int MERGE_THRESHOLD = 64;
+
+    private final ExpenseList source;
+    private final ExpenseStore store;
+    private ExpenseQuery query;
+    // Matching source indexes, ascending
+    private int[] rows;
+    private int size;
+    // While sorted: the same rows in display order
+    private RowOrder order;
+    private int[] sorted;
+    // While a source change is applied to a sorted view: added rows not yet placed in it
+    private int[] pending = new int[16];
+    private int pendingCount;
+
+    RowSubsetList(ExpenseList source, QueryResult initial) {
+        super(source);
+        this.source = source;
+        this.store = source.getStore();
+        this.query = initial.getQuery();
+        this.rows = initial.getRows();
+        this.size = rows.length;
+    }
+
+    ExpenseQuery getQuery() {
+        return query;
+    }
+
+    /** The current contents as a result that a narrower query can refine. */
+    QueryResult currentResult() {
+        return new QueryResult(query, Arrays.copyOf(rows, size), store.getModCount());
+    }
+
+    /** The order rows are shown in, or null for store order. */
+    RowOrder getOrder() {
+        return order;
+    }
+
+    /**
+     * Replaces the contents with a result evaluated elsewhere. The result must be current, i.e.
+     * taken at the store's present modification count, and {@code sortedRows} must be its rows
+     * sorted by {@code order}, or null along with the order.
+     */
+    void publish(QueryResult result, RowOrder order, int[] sortedRows) {
+        List<Expense> removed = snapshot(displayRows(), size);
+        query = result.getQuery();
+        rows = result.getRows();
+        size = rows.length;
+        this.order = order;
+        sorted = sortedRows;
+        beginChange();
+        nextReplace(0, size, removed);
+        endChange();
+    }
+
+    @Override
+    public Expense get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        int[] display = displayRows();
+        Expense expense = source.getCached(display[index]);
+        if (expense == null) {
+            source.fetch(display, Math.max(0, index - PREFETCH_BEFORE), Math.min(size, index + PREFETCH_AFTER));
+            expense = source.getCached(display[index]);
+        }
+        return expense;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int getSourceIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return displayRows()[index];
+    }
+
+    @Override
+    public int getViewIndex(int index) {
+        if (sorted != null) {
+            // Only needed by nested transformation lists, which the table does not use
+            for (int i = 0; i < size; i++) {
+                if (sorted[i] == index) return i;
+            }
+            return -1;
+        }
+        int position = Arrays.binarySearch(rows, 0, size, index);
+        return position < 0 ? -1 : position;
+    }
+
+    private int[] displayRows() {
+        return sorted != null ? sorted : rows;
+    }
+
+    @Override
+    protected void sourceChanged(ListChangeListener.Change<? extends Expense> c) {
+        beginChange();
+        while (c.next()) {
+            if (c.wasPermutated()) {
+                permute(c);
+            } else if (!c.wasUpdated()) {
+                replaceRange(c.getFrom(), c.getRemoved(), c.getAddedSize());
+            }
+        }
+        if (sorted != null) {
+            insertPending();
+        }
+        endChange();
+    }
+
+    /**
+     * Applies one source change: source indexes [from, from + removed.size()) were replaced by
+     * {@code addedSize} new elements.
+     */
+    private void replaceRange(int from, List<? extends Expense> removed, int addedSize) {
+        int lo = lowerBound(from);
+        int hi = lowerBound(from + removed.size());
+
+        List<Expense> removedView = new ArrayList<>(hi - lo);
+        if (sorted == null) {
+            for (int i = lo; i < hi; i++) {
+                removedView.add(removed.get(rows[i] - from));
+            }
+        }
+
+        int[] added = new int[addedSize];
+        int addedCount = 0;
+        for (int source = from; source < from + addedSize; source++) {
+            if (store.matches(source, query)) {
+                added[addedCount++] = source;
+            }
+        }
+
+        int delta = addedSize - removed.size();
+        int oldSize = size;
+        int newSize = size - (hi - lo) + addedCount;
+        if (newSize > rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(newSize, rows.length + (rows.length >> 1)));
+        }
+        System.arraycopy(rows, hi, rows, lo + addedCount, size - hi);
+        System.arraycopy(added, 0, rows, lo, addedCount);
+        if (delta != 0) {
+            for (int i = lo + addedCount; i < newSize; i++) {
+                rows[i] += delta;
+            }
+        }
+        size = newSize;
+
+        if (sorted != null) {
+            replaceSorted(from, removed, delta, oldSize, added, addedCount);
+        } else if (addedCount > 0 || !removedView.isEmpty()) {
+            nextReplace(lo, lo + addedCount, removedView);
+        }
+    }
+
+    /**
+     * Brings the display order in line with a source change that {@link #replaceRange} has already
+     * applied to {@code rows}. Removed rows are dropped in one pass. Added rows are placed only once
+     * the whole change is applied: sorting compares store rows, the store is already in its final
+     * state, and a later step of the same change may still renumber them.
+     */
+    private void replaceSorted(int from, List<? extends Expense> removed, int delta, int oldSize, int[] added, int addedCount) {
+        int end = from + removed.size();
+        int kept = 0;
+        for (int i = 0, placed = oldSize - pendingCount; i < placed; i++) {
+            int row = sorted[i];
+            if (row >= from && row < end) {
+                nextRemove(kept, removed.get(row - from));
+            } else {
+                sorted[kept++] = row >= end ? row + delta : row;
+            }
+        }
+        int stillPending = 0;
+        for (int i = 0; i < pendingCount; i++) {
+            int row = pending[i];
+            if (row < from || row >= end) {
+                pending[stillPending++] = row >= end ? row + delta : row;
+            }
+        }
+        if (stillPending + addedCount > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(stillPending + addedCount, pending.length * 2));
+        }
+        System.arraycopy(added, 0, pending, stillPending, addedCount);
+        pendingCount = stillPending + addedCount;
+    }
+
+    private void insertPending() {
+        if (pendingCount >= MERGE_THRESHOLD) {
+            mergePending();
+            return;
+        }
+        if (size > sorted.length) {
+            sorted = Arrays.copyOf(sorted, Math.max(size, sorted.length + (sorted.length >> 1)));
+        }
+        int placed = size - pendingCount;
+        for (int i = 0; i < pendingCount; i++) {
+            int position = order.upperBound(sorted, placed, pending[i]);
+            System.arraycopy(sorted, position, sorted, position + 1, placed - position);
+            sorted[position] = pending[i];
+            placed++;
+            nextAdd(position, position + 1);
+        }
+        pendingCount = 0;
+    }
+
+    /**
+     * Places a large batch of added rows, such as one streamed in at startup, by sorting the batch
+     * and merging it with the display order in one pass. Rows that compare equal end up where
+     * {@link #insertPending}'s binary insertion would put them: after the rows already shown.
+     */
+    private void mergePending() {
+        int[] added = Arrays.copyOf(pending, pendingCount);
+        Arrays.sort(added);
+        added = order.sort(added);
+        int placed = size - pendingCount;
+        int[] merged = new int[Math.max(size, sorted.length)];
+        int p = 0;
+        int q = 0;
+        int runStart = -1;
+        for (int i = 0; i < size; i++) {
+            if (q < added.length && (p == placed || order.compare(sorted[p], added[q]) > 0)) {
+                merged[i] = added[q++];
+                if (runStart < 0) runStart = i;
+            } else {
+                merged[i] = sorted[p++];
+                if (runStart >= 0) {
+                    nextAdd(runStart, i);
+                    runStart = -1;
+                }
+            }
+        }
+        if (runStart >= 0) {
+            nextAdd(runStart, size);
+        }
+        sorted = merged;
+        pendingCount = 0;
+    }
+
+    private void permute(ListChangeListener.Change<? extends Expense> c) {
+        // Never produced by the managers; keep it correct rather than fast
+        int[] display = displayRows();
+        List<Expense> removed = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            removed.add(source.get(c.getPermutation(display[i])));
+        }
+        rows = store.query(query);
+        size = rows.length;
+        sorted = order == null ? null : order.sort(rows);
+        nextReplace(0, size, removed);
+    }
+
+    /** First position whose source index is >= {@code sourceIndex}. */
+    private int lowerBound(int sourceIndex) {
+        int position = Arrays.binarySearch(rows, 0, size, sourceIndex);
+        return position < 0 ? -position - 1 : position;
+    }
+
+    /** The old view contents, resolved lazily; only valid while the source is unchanged. */
+    private List<Expense> snapshot(int[] oldRows, int oldSize) {
+        return new AbstractList<>() {
+            @Override
+            public Expense get(int index) {
+                return source.get(oldRows[index]);
+            }
+
+            @Override
+            public int size() {
+                return oldSize;
+            }
+        };
+    }
+}
@@ -5,7 +5,12 @@ module com.expensetracker {
     requires javafx.graphics;
     requires java.xml;
     requires org.apache.commons.csv;
+    requires java.sql;
+    requires com.h2database;
+    requires commons.math3;
     requires java.logging; // Added for logging
+    requires java.management; // JVM uptime for the command-line mode
+    requires jdk.httpserver; // Local query API
 
     // Keep reflective access for FXML and JavaFX
     opens com.expensetracker to javafx.fxml;
@@ -16,4 +21,6 @@ module com.expensetracker {
     exports com.expensetracker.model;
     exports com.expensetracker.util;
     exports com.expensetracker.managers;
+    exports com.expensetracker.store;
+    exports com.expensetracker.report;
 }
\ No newline at end of file